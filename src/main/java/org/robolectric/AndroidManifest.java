@@ -3,12 +3,7 @@ package org.robolectric;
 import android.app.Application;
 import org.robolectric.internal.ClassNameResolver;
 import org.robolectric.res.ResourcePath;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -18,21 +13,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
-import static android.content.pm.ApplicationInfo.*;
-
 public class AndroidManifest {
     private final File androidManifestFile;
     private final File resDirectory;
     private final File assetsDirectory;
-    private String rClassName;
-    private String packageName;
-    private String processName;
-    private String applicationName;
-    private boolean manifestIsParsed = false;
-    private Integer targetSdkVersion;
-    private Integer minSdkVersion;
-    private int applicationFlags;
-    private final List<ReceiverAndIntentFilter> receivers = new ArrayList<ReceiverAndIntentFilter>();
+    private ManifestData manifestData;
     private List<AndroidManifest> libraryManifests;
 
     /**
@@ -64,8 +49,7 @@ public class AndroidManifest {
     }
 
     public String getRClassName() throws Exception {
-        parseAndroidManifest();
-        return rClassName;
+        return getPackageName() + ".R";
     }
 
     public Class getRClass() {
@@ -83,134 +67,37 @@ public class AndroidManifest {
         }
     }
 
-    private void parseAndroidManifest() {
-        if (manifestIsParsed) {
-            return;
-        }
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        try {
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document manifestDocument = db.parse(androidManifestFile);
-
-            packageName = getTagAttributeText(manifestDocument, "manifest", "package");
-            rClassName = packageName + ".R";
-            applicationName = getTagAttributeText(manifestDocument, "application", "android:name");
-            minSdkVersion = getTagAttributeIntValue(manifestDocument, "uses-sdk", "android:minSdkVersion");
-            targetSdkVersion = getTagAttributeIntValue(manifestDocument, "uses-sdk", "android:targetSdkVersion");
-            processName = getTagAttributeText(manifestDocument, "application", "android:process");
-            if (processName == null) {
-                processName = packageName;
-            }
-
-            parseApplicationFlags(manifestDocument);
-            parseReceivers(manifestDocument, packageName);
-        } catch (Exception ignored) {
-            ignored.printStackTrace();
+    private ManifestData parseAndroidManifest() {
+        if (manifestData == null) {
+            manifestData = ManifestData.forFile(androidManifestFile);
         }
-        manifestIsParsed = true;
-    }
-
-    private void parseReceivers(final Document manifestDocument, String packageName) {
-        Node application = manifestDocument.getElementsByTagName("application").item(0);
-        if (application == null) {
-            return;
-        }
-        for (Node receiverNode : getChildrenTags(application, "receiver")) {
-            Node namedItem = receiverNode.getAttributes().getNamedItem("android:name");
-            if (namedItem == null) {
-                continue;
-            }
-            String receiverName = namedItem.getTextContent();
-            if (receiverName.startsWith(".")) {
-                receiverName = packageName + receiverName;
-            }
-            for (Node intentFilterNode : getChildrenTags(receiverNode, "intent-filter")) {
-                List<String> actions = new ArrayList<String>();
-                for (Node actionNode : getChildrenTags(intentFilterNode, "action")) {
-                    Node nameNode = actionNode.getAttributes().getNamedItem("android:name");
-                    if (nameNode != null) {
-                        actions.add(nameNode.getTextContent());
-                    }
-                }
-                receivers.add(new ReceiverAndIntentFilter(receiverName, actions));
-            }
-        }
-    }
-
-    private List<Node> getChildrenTags(final Node node, final String tagName) {
-        List<Node> children = new ArrayList<Node>();
-        for (int i = 0; i < node.getChildNodes().getLength(); i++) {
-            Node childNode = node.getChildNodes().item(i);
-            if (childNode.getNodeName().equalsIgnoreCase(tagName)) {
-                children.add(childNode);
-            }
-        }
-        return children;
-    }
-
-    private void parseApplicationFlags(final Document manifestDocument) {
-        applicationFlags = getApplicationFlag(manifestDocument, "android:allowBackup", FLAG_ALLOW_BACKUP);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:allowClearUserData", FLAG_ALLOW_CLEAR_USER_DATA);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:allowTaskReparenting", FLAG_ALLOW_TASK_REPARENTING);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:debuggable", FLAG_DEBUGGABLE);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:hasCode", FLAG_HAS_CODE);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:killAfterRestore", FLAG_KILL_AFTER_RESTORE);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:persistent", FLAG_PERSISTENT);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:resizeable", FLAG_RESIZEABLE_FOR_SCREENS);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:restoreAnyVersion", FLAG_RESTORE_ANY_VERSION);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:largeScreens", FLAG_SUPPORTS_LARGE_SCREENS);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:normalScreens", FLAG_SUPPORTS_NORMAL_SCREENS);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:anyDensity", FLAG_SUPPORTS_SCREEN_DENSITIES);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:smallScreens", FLAG_SUPPORTS_SMALL_SCREENS);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:testOnly", FLAG_TEST_ONLY);
-        applicationFlags += getApplicationFlag(manifestDocument, "android:vmSafeMode", FLAG_VM_SAFE_MODE);
-    }
-
-    private int getApplicationFlag(final Document doc, final String attribute, final int attributeValue) {
-        String flagString = getTagAttributeText(doc, "application", attribute);
-        return "true".equalsIgnoreCase(flagString) ? attributeValue : 0;
-    }
-
-    private Integer getTagAttributeIntValue(final Document doc, final String tag, final String attribute) {
-        return getTagAttributeIntValue(doc, tag, attribute, null);
-    }
-
-    private Integer getTagAttributeIntValue(final Document doc, final String tag, final String attribute, final Integer defaultValue) {
-        String valueString = getTagAttributeText(doc, tag, attribute);
-        if (valueString != null) {
-            return Integer.parseInt(valueString);
-        }
-        return defaultValue;
+        return manifestData;
     }
 
     public String getApplicationName() {
-        parseAndroidManifest();
-        return applicationName;
+        return parseAndroidManifest().applicationName;
     }
 
     public String getPackageName() {
-        parseAndroidManifest();
-        return packageName;
+        return parseAndroidManifest().packageName;
     }
 
     public int getMinSdkVersion() {
-        parseAndroidManifest();
+        Integer minSdkVersion = parseAndroidManifest().minSdkVersion;
         return minSdkVersion == null ? 1 : minSdkVersion;
     }
 
     public int getTargetSdkVersion() {
-        parseAndroidManifest();
+        Integer targetSdkVersion = parseAndroidManifest().targetSdkVersion;
         return targetSdkVersion == null ? getMinSdkVersion() : targetSdkVersion;
     }
 
     public int getApplicationFlags() {
-        parseAndroidManifest();
-        return applicationFlags;
+        return parseAndroidManifest().applicationFlags;
     }
 
     public String getProcessName() {
-        parseAndroidManifest();
-        return processName;
+        return parseAndroidManifest().processName;
     }
 
     public ResourcePath getResourcePath() {
@@ -300,30 +187,15 @@ public class AndroidManifest {
     }
 
     public int getReceiverCount() {
-        parseAndroidManifest();
-        return receivers.size();
+        return parseAndroidManifest().receivers.size();
     }
 
     public String getReceiverClassName(final int receiverIndex) {
-        parseAndroidManifest();
-        return receivers.get(receiverIndex).getBroadcastReceiverClassName();
+        return parseAndroidManifest().receivers.get(receiverIndex).className;
     }
 
     public List<String> getReceiverIntentFilterActions(final int receiverIndex) {
-        parseAndroidManifest();
-        return receivers.get(receiverIndex).getIntentFilterActions();
-    }
-
-    private static String getTagAttributeText(final Document doc, final String tag, final String attribute) {
-        NodeList elementsByTagName = doc.getElementsByTagName(tag);
-        for (int i = 0; i < elementsByTagName.getLength(); ++i) {
-            Node item = elementsByTagName.item(i);
-            Node namedItem = item.getAttributes().getNamedItem(attribute);
-            if (namedItem != null) {
-                return namedItem.getTextContent();
-            }
-        }
-        return null;
+        return parseAndroidManifest().receivers.get(receiverIndex).intentFilterActions;
     }
 
     private static Application newApplicationInstance(final String packageName, final String applicationName) {
@@ -361,22 +233,4 @@ public class AndroidManifest {
         result = 31 * result + (assetsDirectory != null ? assetsDirectory.hashCode() : 0);
         return result;
     }
-
-    private static class ReceiverAndIntentFilter {
-        private final List<String> intentFilterActions;
-        private final String broadcastReceiverClassName;
-
-        public ReceiverAndIntentFilter(final String broadcastReceiverClassName, final List<String> intentFilterActions) {
-            this.broadcastReceiverClassName = broadcastReceiverClassName;
-            this.intentFilterActions = intentFilterActions;
-        }
-
-        public String getBroadcastReceiverClassName() {
-            return broadcastReceiverClassName;
-        }
-
-        public List<String> getIntentFilterActions() {
-            return intentFilterActions;
-        }
-    }
 }
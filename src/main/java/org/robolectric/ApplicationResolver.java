@@ -6,7 +6,6 @@ import android.content.IntentFilter;
 import org.robolectric.internal.ClassNameResolver;
 import org.robolectric.res.builder.RobolectricPackageManager;
 import org.robolectric.shadows.ShadowApplication;
-import org.w3c.dom.Document;
 
 import static org.robolectric.Robolectric.shadowOf;
 
@@ -62,10 +61,6 @@ public class ApplicationResolver {
         return receiverClassName;
     }
 
-    private String getTagAttributeText(Document doc, String tag, String attribute) {
-        return doc.getElementsByTagName(tag).item(0).getAttributes().getNamedItem(attribute).getTextContent();
-    }
-
     private Application newApplicationInstance() {
         Application application;
         try {
@@ -0,0 +1,217 @@
+package org.robolectric;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static android.content.pm.ApplicationInfo.*;
+
+/**
+ * The bits of an AndroidManifest.xml that Robolectric cares about, read with a single streaming pass.
+ * <p/>
+ * Instances are immutable and shared between every {@link AndroidManifest} pointing at the same file; the file is only
+ * re-read when its modification time or size changes.
+ */
+class ManifestData {
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static final Map<File, CacheEntry> CACHE = new HashMap<File, CacheEntry>();
+
+    private static final String[] FLAG_ATTRIBUTES = {
+            "allowBackup", "allowClearUserData", "allowTaskReparenting", "debuggable", "hasCode",
+            "killAfterRestore", "persistent", "resizeable", "restoreAnyVersion", "largeScreens",
+            "normalScreens", "anyDensity", "smallScreens", "testOnly", "vmSafeMode"
+    };
+    private static final int[] FLAG_VALUES = {
+            FLAG_ALLOW_BACKUP, FLAG_ALLOW_CLEAR_USER_DATA, FLAG_ALLOW_TASK_REPARENTING, FLAG_DEBUGGABLE, FLAG_HAS_CODE,
+            FLAG_KILL_AFTER_RESTORE, FLAG_PERSISTENT, FLAG_RESIZEABLE_FOR_SCREENS, FLAG_RESTORE_ANY_VERSION, FLAG_SUPPORTS_LARGE_SCREENS,
+            FLAG_SUPPORTS_NORMAL_SCREENS, FLAG_SUPPORTS_SCREEN_DENSITIES, FLAG_SUPPORTS_SMALL_SCREENS, FLAG_TEST_ONLY, FLAG_VM_SAFE_MODE
+    };
+
+    final String packageName;
+    final String applicationName;
+    final String processName;
+    final Integer minSdkVersion;
+    final Integer targetSdkVersion;
+    final int applicationFlags;
+    final List<Receiver> receivers;
+
+    private ManifestData(Parser parser) {
+        packageName = parser.packageName;
+        applicationName = parser.applicationName;
+        processName = parser.processName == null ? parser.packageName : parser.processName;
+        minSdkVersion = parser.minSdkVersion;
+        targetSdkVersion = parser.targetSdkVersion;
+        int flags = 0;
+        for (int i = 0; i < FLAG_ATTRIBUTES.length; i++) {
+            if ("true".equalsIgnoreCase(parser.flagValues[i])) flags += FLAG_VALUES[i];
+        }
+        applicationFlags = flags;
+        receivers = Collections.unmodifiableList(parser.receivers);
+    }
+
+    static ManifestData forFile(File androidManifestFile) {
+        File key = androidManifestFile.getAbsoluteFile();
+        long lastModified = key.lastModified();
+        long length = key.length();
+
+        synchronized (CACHE) {
+            CacheEntry cacheEntry = CACHE.get(key);
+            if (cacheEntry != null && cacheEntry.lastModified == lastModified && cacheEntry.length == length) {
+                return cacheEntry.manifestData;
+            }
+        }
+
+        ManifestData manifestData = parse(key);
+        synchronized (CACHE) {
+            CACHE.put(key, new CacheEntry(lastModified, length, manifestData));
+        }
+        return manifestData;
+    }
+
+    private static ManifestData parse(File androidManifestFile) {
+        Parser parser = new Parser();
+        try {
+            InputStream inputStream = new BufferedInputStream(new FileInputStream(androidManifestFile));
+            try {
+                XMLStreamReader reader;
+                synchronized (XML_INPUT_FACTORY) {
+                    reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+                }
+                try {
+                    parser.parse(reader);
+                } finally {
+                    reader.close();
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception ignored) {
+            ignored.printStackTrace();
+        }
+        return new ManifestData(parser);
+    }
+
+    static class Receiver {
+        final String className;
+        final List<String> intentFilterActions;
+
+        Receiver(String className, List<String> intentFilterActions) {
+            this.className = className;
+            this.intentFilterActions = Collections.unmodifiableList(intentFilterActions);
+        }
+    }
+
+    private static class CacheEntry {
+        final long lastModified;
+        final long length;
+        final ManifestData manifestData;
+
+        CacheEntry(long lastModified, long length, ManifestData manifestData) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.manifestData = manifestData;
+        }
+    }
+
+    private static class Parser {
+        String packageName;
+        String applicationName;
+        String processName;
+        Integer minSdkVersion;
+        Integer targetSdkVersion;
+        final String[] flagValues = new String[FLAG_ATTRIBUTES.length];
+        final List<Receiver> receivers = new ArrayList<Receiver>();
+
+        private int depth;
+        private int applicationDepth = -1;
+        private boolean seenApplication;
+        private String receiverName;
+        private List<String> actions;
+
+        void parse(XMLStreamReader reader) throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    startElement(reader);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    endElement(reader.getLocalName());
+                    depth--;
+                }
+            }
+        }
+
+        private void startElement(XMLStreamReader reader) {
+            String tag = reader.getLocalName();
+            if (tag.equals("manifest")) {
+                if (packageName == null) packageName = attribute(reader, null, "package");
+            } else if (tag.equals("uses-sdk")) {
+                if (minSdkVersion == null) minSdkVersion = intAttribute(reader, "minSdkVersion");
+                if (targetSdkVersion == null) targetSdkVersion = intAttribute(reader, "targetSdkVersion");
+            } else if (tag.equals("application")) {
+                if (applicationName == null) applicationName = attribute(reader, "android", "name");
+                if (processName == null) processName = attribute(reader, "android", "process");
+                for (int i = 0; i < FLAG_ATTRIBUTES.length; i++) {
+                    if (flagValues[i] == null) flagValues[i] = attribute(reader, "android", FLAG_ATTRIBUTES[i]);
+                }
+                if (!seenApplication) {
+                    seenApplication = true;
+                    applicationDepth = depth;
+                }
+            } else if (applicationDepth != -1) {
+                if (depth == applicationDepth + 1 && tag.equalsIgnoreCase("receiver")) {
+                    receiverName = attribute(reader, "android", "name");
+                    if (receiverName != null && receiverName.startsWith(".")) {
+                        receiverName = packageName + receiverName;
+                    }
+                } else if (receiverName != null && depth == applicationDepth + 2 && tag.equalsIgnoreCase("intent-filter")) {
+                    actions = new ArrayList<String>();
+                } else if (actions != null && depth == applicationDepth + 3 && tag.equalsIgnoreCase("action")) {
+                    String action = attribute(reader, "android", "name");
+                    if (action != null) actions.add(action);
+                }
+            }
+        }
+
+        private void endElement(String tag) {
+            if (applicationDepth == -1) return;
+
+            if (depth == applicationDepth) {
+                applicationDepth = -1;
+            } else if (depth == applicationDepth + 1 && tag.equalsIgnoreCase("receiver")) {
+                receiverName = null;
+            } else if (actions != null && depth == applicationDepth + 2 && tag.equalsIgnoreCase("intent-filter")) {
+                receivers.add(new Receiver(receiverName, actions));
+                actions = null;
+            }
+        }
+
+        private Integer intAttribute(XMLStreamReader reader, String localName) {
+            String value = attribute(reader, "android", localName);
+            return value == null ? null : Integer.parseInt(value);
+        }
+
+        private static String attribute(XMLStreamReader reader, String prefix, String localName) {
+            for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+                if (!localName.equals(reader.getAttributeLocalName(i))) continue;
+
+                String attrPrefix = reader.getAttributePrefix(i);
+                boolean noPrefix = attrPrefix == null || attrPrefix.length() == 0;
+                if (prefix == null ? noPrefix : prefix.equals(attrPrefix)) {
+                    return reader.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+    }
+}
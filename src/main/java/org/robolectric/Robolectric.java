@@ -358,7 +358,9 @@ import org.robolectric.shadows.ShadowZoomButtonsController;
 import org.robolectric.tester.org.apache.http.FakeHttpLayer;
 import org.robolectric.tester.org.apache.http.HttpRequestInfo;
 import org.robolectric.tester.org.apache.http.RequestMatcher;
+import org.robolectric.util.BackgroundThreadPool;
 import org.robolectric.util.Scheduler;
+import org.robolectric.util.VirtualClock;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -1117,11 +1119,31 @@ public class Robolectric {
     /**
      * Runs any background tasks previously queued by {@link android.os.AsyncTask#execute(Object[])}.
      * <p/>
+     * If background work is running on real threads (see {@link #setBackgroundThreadCount(int)}), waits for all of it
+     * to finish instead.
      * <p/>
      * Note: calling this method does not pause or un-pause the scheduler.
      */
     public static void runBackgroundTasks() {
-        getBackgroundScheduler().advanceBy(0);
+        BackgroundThreadPool backgroundThreadPool = getShadowApplication().getBackgroundThreadPool();
+        if (backgroundThreadPool == null) {
+            getBackgroundScheduler().advanceBy(0);
+            return;
+        }
+
+        try {
+            backgroundThreadPool.awaitIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @see ShadowApplication#setBackgroundThreadCount(int)
+     */
+    public static void setBackgroundThreadCount(int threadCount) {
+        getShadowApplication().setBackgroundThreadCount(threadCount);
     }
 
     /**
@@ -1342,6 +1364,10 @@ public class Robolectric {
         return getShadowApplication().getBackgroundScheduler();
     }
 
+    public static VirtualClock getVirtualClock() {
+        return ShadowLooper.getVirtualClock();
+    }
+
     public static ShadowApplication getShadowApplication() {
         return Robolectric.application == null ? null : shadowOf(Robolectric.application);
     }
@@ -1420,6 +1446,7 @@ public class Robolectric {
     }
 
     public static void reset() {
+        if (Robolectric.application != null) getShadowApplication().setBackgroundThreadCount(0);
         Robolectric.application = null;
         ShadowAccountManager.reset();
         ShadowBitmapFactory.reset();
@@ -1432,6 +1459,7 @@ public class Robolectric {
         ShadowContentResolver.reset();
 //        ShadowLocalBroadcastManager.reset();
         ShadowMimeTypeMap.reset();
+        ShadowMessage.reset();
         ShadowPowerManager.reset();
         ShadowStatFs.reset();
         ShadowTypeface.reset();
@@ -29,6 +29,7 @@ import org.robolectric.bytecode.ZipClassCache;
 import org.robolectric.internal.ParallelUniverse;
 import org.robolectric.internal.ParallelUniverseInterface;
 import org.robolectric.internal.TestLifecycle;
+import org.robolectric.res.BinaryResourceTable;
 import org.robolectric.res.OverlayResourceLoader;
 import org.robolectric.res.PackageResourceLoader;
 import org.robolectric.res.ResourceLoader;
@@ -39,6 +40,7 @@ import org.robolectric.util.AnnotationUtil;
 import org.robolectric.util.DatabaseConfig.DatabaseMap;
 import org.robolectric.util.DatabaseConfig.UsingDatabaseMap;
 import org.robolectric.util.SQLiteMap;
+import org.robolectric.util.Util;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -161,15 +163,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     }
 
     public ClassCache createClassCache() {
-        final String classCachePath = System.getProperty("cached.robolectric.classes.path");
-        final File classCacheDirectory;
-        if (null == classCachePath || "".equals(classCachePath.trim())) {
-            classCacheDirectory = new File("./tmp");
-        } else {
-            classCacheDirectory = new File(classCachePath);
-        }
-
-        return new ZipClassCache(new File(classCacheDirectory, "cached-robolectric-classes.jar").getAbsolutePath(), AndroidTranslator.CACHE_VERSION);
+        return new ZipClassCache(new File(Util.cacheDirectory(), "cached-robolectric-classes.jar").getAbsolutePath(), AndroidTranslator.CACHE_VERSION);
     }
 
     public AndroidTranslator createAndroidTranslator(Setup setup, ClassCache classCache) {
@@ -634,7 +628,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     protected static ResourceLoader createAppResourceLoader(ResourceLoader systemResourceLoader, AndroidManifest appManifest) {
         List<PackageResourceLoader> appAndLibraryResourceLoaders = new ArrayList<PackageResourceLoader>();
         for (ResourcePath resourcePath : appManifest.getIncludedResourcePaths()) {
-            appAndLibraryResourceLoaders.add(new PackageResourceLoader(resourcePath));
+            appAndLibraryResourceLoaders.add(createResourceLoader(resourcePath));
         }
         OverlayResourceLoader overlayResourceLoader = new OverlayResourceLoader(appManifest.getPackageName(), appAndLibraryResourceLoaders);
 
@@ -644,8 +638,12 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
         return new RoutingResourceLoader(resourceLoaders);
     }
 
-    public static PackageResourceLoader createResourceLoader(ResourcePath systemResourcePath) {
-        return new PackageResourceLoader(systemResourcePath);
+    /**
+     * Compiled tables are kept for the app's and libraries' resources as well as the SDK's, so after a change only the
+     * files that changed are parsed again.
+     */
+    public static PackageResourceLoader createResourceLoader(ResourcePath resourcePath) {
+        return new PackageResourceLoader(resourcePath, new BinaryResourceTable(Util.cacheDirectory(), resourcePath));
     }
 
     /*
@@ -10,6 +10,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class SdkEnvironment {
+    private static AndroidSdkFinder androidSdkFinder;
+
     private final AndroidManifest appManifest;
     private final ClassLoader robolectricClassLoader;
     private ResourcePath systemResourcePath;
@@ -28,11 +30,18 @@ public class SdkEnvironment {
     public synchronized ResourcePath getSystemResourcePath() {
         if (systemResourcePath == null) {
             int targetSdkVersion = RobolectricTestRunner.getTargetVersionWhenAppManifestMightBeNullWhaaa(appManifest);
-            systemResourcePath = new AndroidSdkFinder().findSystemResourcePath(targetSdkVersion);
+            systemResourcePath = getAndroidSdkFinder().findSystemResourcePath(targetSdkVersion);
         }
         return systemResourcePath;
     }
 
+    private static synchronized AndroidSdkFinder getAndroidSdkFinder() {
+        if (androidSdkFinder == null) {
+            androidSdkFinder = new AndroidSdkFinder();
+        }
+        return androidSdkFinder;
+    }
+
     public Class<?> bootstrappedClass(Class<?> testClass) {
         try {
             return robolectricClassLoader.loadClass(testClass.getName());
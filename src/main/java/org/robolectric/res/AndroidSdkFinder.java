@@ -21,6 +21,7 @@ public class AndroidSdkFinder {
     public static final String LOCAL_PROPERTIES_FILE_NAME = "local.properties";
 
     private final File androidSdkBaseDir;
+    private AndroidSdkLocationCache locationCache;
 
     public AndroidSdkFinder() {
         this.androidSdkBaseDir = getPathToAndroidResources();
@@ -104,11 +105,22 @@ public class AndroidSdkFinder {
     }
 
     private File getAndroidResourcePathByExecingWhichAndroid() {
-        File file = shellExec("which", "android");
+        File file = getLocationCache().getSdkDir();
+        if (file != null) return file;
+
+        file = shellExec("which", "android");
         if (file == null) file = shellExec("bash", "-l", "-c", "which android");
+        if (file != null) getLocationCache().putSdkDir(file);
         return file;
     }
 
+    private AndroidSdkLocationCache getLocationCache() {
+        if (locationCache == null) {
+            locationCache = AndroidSdkLocationCache.forCurrentEnvironment();
+        }
+        return locationCache;
+    }
+
     private File shellExec(String... args) {
         // Hand tested
         // Should always work from the command line. Often fails in IDEs because
@@ -129,10 +141,9 @@ public class AndroidSdkFinder {
         return null;
     }
 
-    private Integer extractSdkInt(File file) {
-        String name = file.getName();
+    private Integer extractSdkInt(String name) {
         int dashIdx = name.lastIndexOf('-');
-        if (dashIdx == -1) throw new RuntimeException("not an android-XX dir: " + file.getPath());
+        if (dashIdx == -1) throw new RuntimeException("not an android-XX dir: " + name);
 
         return Integer.parseInt(name.substring(dashIdx + 1));
     }
@@ -141,20 +152,24 @@ public class AndroidSdkFinder {
         File platformsDir = file(androidSdkBaseDir, "platforms");
         if (!platformsDir.exists()) return null;
 
-        File[] sdkDirs = platformsDir.listFiles(new FilenameFilter() {
-            @Override public boolean accept(@NotNull File dir, @NotNull String name) {
-                return name.matches("android-\\d+");
-            }
-        });
-        Arrays.sort(sdkDirs, new Comparator<File>() {
-            @Override public int compare(@NotNull File o1, @NotNull File o2) {
-                return extractSdkInt(o1).compareTo(extractSdkInt(o2));
-            }
-        });
-        if (sdkDirs.length == 0)
+        String[] sdkDirNames = getLocationCache().getPlatforms(platformsDir);
+        if (sdkDirNames == null) {
+            sdkDirNames = platformsDir.list(new FilenameFilter() {
+                @Override public boolean accept(@NotNull File dir, @NotNull String name) {
+                    return name.matches("android-\\d+");
+                }
+            });
+            Arrays.sort(sdkDirNames, new Comparator<String>() {
+                @Override public int compare(@NotNull String o1, @NotNull String o2) {
+                    return extractSdkInt(o1).compareTo(extractSdkInt(o2));
+                }
+            });
+            getLocationCache().putPlatforms(platformsDir, sdkDirNames);
+        }
+        if (sdkDirNames.length == 0)
             throw new RuntimeException("no android-XX dirs found in " + platformsDir.getPath());
 
-        File sdkDir = sdkDirs[sdkDirs.length - 1];
+        File sdkDir = new File(platformsDir, sdkDirNames[sdkDirNames.length - 1]);
         return new ResourcePath(android.R.class, file(sdkDir, "data", "res"), null);
     }
 }
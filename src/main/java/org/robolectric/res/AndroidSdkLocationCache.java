@@ -0,0 +1,122 @@
+package org.robolectric.res;
+
+import org.robolectric.util.Util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Remembers where the Android SDK was found and which platforms it contains, so later JVMs don't have to exec
+ * {@code which android} or re-list the platforms directory.
+ * <p/>
+ * Entries are only trusted while the environment they were found in is unchanged and, for the platform list,
+ * while the platforms directory has the same modification time.
+ */
+class AndroidSdkLocationCache {
+    static final String CACHE_FILE_NAME = "android-sdk-location.properties";
+
+    private static final String ENVIRONMENT = "environment";
+    private static final String SDK_DIR = "sdk.dir";
+    private static final String PLATFORMS_DIR = "platforms.dir";
+    private static final String PLATFORMS_LAST_MODIFIED = "platforms.lastModified";
+    private static final String PLATFORMS = "platforms";
+
+    private final File cacheFile;
+    private final String environment;
+    private final Properties properties = new Properties();
+
+    AndroidSdkLocationCache(File cacheFile, String environment) {
+        this.cacheFile = cacheFile;
+        this.environment = environment;
+
+        if (cacheFile.exists()) {
+            try {
+                InputStream in = new FileInputStream(cacheFile);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // fine, we'll just look again
+            }
+        }
+
+        if (!environment.equals(properties.getProperty(ENVIRONMENT))) {
+            properties.clear();
+            properties.setProperty(ENVIRONMENT, environment);
+        }
+    }
+
+    static AndroidSdkLocationCache forCurrentEnvironment() {
+        return new AndroidSdkLocationCache(new File(Util.cacheDirectory(), CACHE_FILE_NAME), currentEnvironment());
+    }
+
+    private static String currentEnvironment() {
+        return System.getenv("PATH") + File.pathSeparator + System.getenv("HOME") + File.pathSeparator + System.getenv("SHELL");
+    }
+
+    File getSdkDir() {
+        String sdkDir = properties.getProperty(SDK_DIR);
+        if (sdkDir == null) return null;
+
+        File file = new File(sdkDir);
+        return file.isDirectory() ? file : null;
+    }
+
+    void putSdkDir(File sdkDir) {
+        properties.setProperty(SDK_DIR, sdkDir.getPath());
+        save();
+    }
+
+    String[] getPlatforms(File platformsDir) {
+        String platforms = properties.getProperty(PLATFORMS);
+        if (platforms == null
+                || !platformsDir.getPath().equals(properties.getProperty(PLATFORMS_DIR))
+                || !String.valueOf(platformsDir.lastModified()).equals(properties.getProperty(PLATFORMS_LAST_MODIFIED))) {
+            return null;
+        }
+        return platforms.length() == 0 ? new String[0] : platforms.split(",");
+    }
+
+    void putPlatforms(File platformsDir, String[] platforms) {
+        StringBuilder buf = new StringBuilder();
+        for (String platform : platforms) {
+            if (buf.length() > 0) buf.append(",");
+            buf.append(platform);
+        }
+        properties.setProperty(PLATFORMS_DIR, platformsDir.getPath());
+        properties.setProperty(PLATFORMS_LAST_MODIFIED, String.valueOf(platformsDir.lastModified()));
+        properties.setProperty(PLATFORMS, buf.toString());
+        save();
+    }
+
+    private void save() {
+        File cacheDirectory = cacheFile.getParentFile();
+        if (cacheDirectory != null) cacheDirectory.mkdirs();
+
+        // written alongside and renamed into place, so other JVMs never read a partly written file
+        File tmpFile = new File(cacheDirectory, cacheFile.getName() + "." + System.nanoTime() + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(tmpFile);
+            try {
+                properties.store(out, "Robolectric Android SDK location cache");
+            } finally {
+                out.close();
+            }
+            if (!tmpFile.renameTo(cacheFile)) {
+                // some platforms won't rename over an existing file
+                cacheFile.delete();
+                if (!tmpFile.renameTo(cacheFile)) tmpFile.delete();
+            }
+        } catch (IOException e) {
+            // fine, we'll just look again next time
+            tmpFile.delete();
+        }
+    }
+}
@@ -1,36 +1,37 @@
 package org.robolectric.res;
 
 import android.view.View;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-public class AttrResourceLoader extends XmlLoader {
+public class AttrResourceLoader extends StreamingXmlLoader {
     Map<String, EnumDef> enums = new HashMap<String, EnumDef>();
     Map<String, EnumRef> enumRefs = new HashMap<String, EnumRef>();
-    boolean resolved = false;
+    volatile boolean resolved = false;
 
     Map<String, String> classEnumToValue = new HashMap<String, String>();
     Set<String> knownClassEnums = new HashSet<String>();
-  
-    static class EnumDef {
+
+    private Map<File, AttrSnapshot> fileSnapshots;
+
+    static class EnumDef implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         final String name;
         final Map<String, String> values = new HashMap<String, String>();
 
         EnumDef(String name) { this.name = name; }
     }
 
-    static class EnumRef {
+    static class EnumRef implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         final String viewName;
         final String enumName;
 
@@ -40,52 +41,155 @@ public class AttrResourceLoader extends XmlLoader {
         }
     }
 
-    @Override protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
+    /**
+     * The attrs read from one file, or everything a loader has read.
+     */
+    static class AttrSnapshot implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final Map<String, EnumDef> enums;
+        final Map<String, EnumRef> enumRefs;
+        final Map<String, String> classEnumToValue;
+        final Set<String> knownClassEnums;
+
+        AttrSnapshot(Map<String, EnumDef> enums, Map<String, EnumRef> enumRefs, Map<String, String> classEnumToValue, Set<String> knownClassEnums) {
+            this.enums = enums;
+            this.enumRefs = enumRefs;
+            this.classEnumToValue = classEnumToValue;
+            this.knownClassEnums = knownClassEnums;
+        }
+    }
 
-        // Pick up inline enum definitions
-        {
-            NodeList nodeList = findNodes(document, "/resources/declare-styleable/attr/enum|/resources/declare-styleable/attr/flag");
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                Node node = nodeList.item(i);
-                String viewName = node.getParentNode().getParentNode().getAttributes().getNamedItem("name").getNodeValue();
-                String enumName = enumName(node.getParentNode().getAttributes().getNamedItem("name").getNodeValue(), xmlContext.packageName);
-                String name = node.getAttributes().getNamedItem("name").getNodeValue();
-                String value = node.getAttributes().getNamedItem("value").getNodeValue();
+    @Override protected FileHandler startFile(File xmlFile, final XmlLoader.XmlContext xmlContext) {
+        return new FileHandler() {
+            boolean inResources;
+            String styleableName;
+            String globalAttrName;
+
+            String styleableAttrName;
+            boolean styleableAttrHasChildren;
+
+            Map<String, EnumDef> fileEnums = new HashMap<String, EnumDef>();
+            Map<String, EnumRef> fileEnumRefs = new HashMap<String, EnumRef>();
+            Map<String, String> fileClassEnumToValue = new HashMap<String, String>();
+            Set<String> fileKnownClassEnums = new HashSet<String>();
+
+            @Override protected void startElement(XMLStreamReader reader, int depth) {
+                if (depth == 1) {
+                    inResources = isElement(reader, "resources");
+                } else if (!inResources) {
+                    // not a values file
+                } else if (depth == 2) {
+                    if (isElement(reader, "declare-styleable")) {
+                        styleableName = reader.getAttributeValue(null, "name");
+                    } else if (isElement(reader, "attr")) {
+                        globalAttrName = reader.getAttributeValue(null, "name");
+                    }
+                } else if (depth == 3) {
+                    if (styleableName != null && isElement(reader, "attr")) {
+                        styleableAttrName = reader.getAttributeValue(null, "name");
+                        styleableAttrHasChildren = false;
+                    } else if (globalAttrName != null && isEnumOrFlag(reader)) {
+                        // Look for any global enum definitions.
+                        String enumName = enumName(globalAttrName, xmlContext.packageName);
+                        EnumDef enumDef = fileEnums.get(enumName);
+                        if (enumDef == null) {
+                            enumDef = new EnumDef(enumName);
+                            fileEnums.put(enumName, enumDef);
+                        }
+                        enumDef.values.put(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"));
+                    }
+                } else if (styleableAttrName != null) {
+                    styleableAttrHasChildren = true;
+
+                    if (depth == 4 && isEnumOrFlag(reader)) {
+                        // Pick up inline enum definitions
+                        String enumName = enumName(styleableAttrName, xmlContext.packageName);
+                        String name = reader.getAttributeValue(null, "name");
+                        String value = reader.getAttributeValue(null, "value");
+
+                        fileClassEnumToValue.put(key(styleableName, enumName, name), value);
+                        fileKnownClassEnums.add(key(styleableName, enumName));
+                    }
+                }
+            }
 
-                classEnumToValue.put(key(viewName, enumName, name), value);
-                knownClassEnums.add(key(viewName, enumName));
+            @Override protected void characters(XMLStreamReader reader) {
+                if (styleableAttrName != null) styleableAttrHasChildren = true;
             }
-        }
 
-        // Look for any global enum definitions.
-        {
-            NodeList nodeList = findNodes(document, "/resources/attr/enum|/resources/attr/flag");
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                Node node = nodeList.item(i);
-
-                String enumName = enumName(node.getParentNode().getAttributes().getNamedItem("name").getNodeValue(), xmlContext.packageName);
-                EnumDef enumDef = enums.get(enumName);
-                if (enumDef == null) {
-                    enumDef = new EnumDef(enumName);
-                    enums.put(enumName, enumDef);
+            @Override protected void endElement(XMLStreamReader reader, int depth) {
+                if (depth == 3 && styleableAttrName != null) {
+                    // Note uses of system enums and top level local enums by childless attr nodes
+                    if (!styleableAttrHasChildren) {
+                        String enumName = enumName(styleableAttrName, xmlContext.packageName);
+                        fileEnumRefs.put(key(styleableName, enumName), new EnumRef(styleableName, enumName));
+                    }
+                    styleableAttrName = null;
+                } else if (depth == 2) {
+                    styleableName = null;
+                    globalAttrName = null;
                 }
-                enumDef.values.put(node.getAttributes().getNamedItem("name").getNodeValue(),
-                        node.getAttributes().getNamedItem("value").getNodeValue());
             }
-        }
-
-        // Note uses of system enums and top level local enums by childless attr nodes
-        {
-            NodeList nodeList = findNodes(document, "/resources/declare-styleable/attr[not(node())]");
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                Node node = nodeList.item(i);
 
-                String viewName = node.getParentNode().getAttributes().getNamedItem("name").getNodeValue();
-                String enumName = enumName(node.getAttributes().getNamedItem("name").getNodeValue(), xmlContext.packageName);
+            @Override protected void endDocument() {
+                AttrSnapshot fileSnapshot = new AttrSnapshot(fileEnums, fileEnumRefs, fileClassEnumToValue, fileKnownClassEnums);
+                if (fileSnapshots != null) fileSnapshots.put(xmlContext.getXmlFile(), fileSnapshot);
+                merge(fileSnapshot);
+            }
+        };
+    }
 
-                enumRefs.put(key(viewName, enumName), new EnumRef(viewName, enumName));
+    private void merge(AttrSnapshot fileSnapshot) {
+        for (EnumDef fileEnumDef : fileSnapshot.enums.values()) {
+            EnumDef enumDef = enums.get(fileEnumDef.name);
+            if (enumDef == null) {
+                // copied so that the file's own definition stays as it was parsed
+                enums.put(fileEnumDef.name, enumDef = new EnumDef(fileEnumDef.name));
             }
+            enumDef.values.putAll(fileEnumDef.values);
         }
+        enumRefs.putAll(fileSnapshot.enumRefs);
+        classEnumToValue.putAll(fileSnapshot.classEnumToValue);
+        knownClassEnums.addAll(fileSnapshot.knownClassEnums);
+    }
+
+    /**
+     * Adds everything another loader has read, as if its files had been read after this one's.
+     */
+    void merge(AttrResourceLoader other) {
+        merge(other.snapshot());
+    }
+
+    /**
+     * Starts remembering what each file contributes, so it can be cached per file.
+     */
+    void recordFileSnapshots() {
+        fileSnapshots = new HashMap<File, AttrSnapshot>();
+    }
+
+    Map<File, AttrSnapshot> getFileSnapshots() {
+        return fileSnapshots;
+    }
+
+    void restoreFile(File xmlFile, AttrSnapshot fileSnapshot) {
+        if (fileSnapshots != null) fileSnapshots.put(xmlFile, fileSnapshot);
+        merge(fileSnapshot);
+    }
+
+    private static boolean isEnumOrFlag(XMLStreamReader reader) {
+        return isElement(reader, "enum") || isElement(reader, "flag");
+    }
+
+    AttrSnapshot snapshot() {
+        return new AttrSnapshot(enums, enumRefs, classEnumToValue, knownClassEnums);
+    }
+
+    void restore(AttrSnapshot snapshot) {
+        enums.putAll(snapshot.enums);
+        enumRefs.putAll(snapshot.enumRefs);
+        classEnumToValue.putAll(snapshot.classEnumToValue);
+        knownClassEnums.addAll(snapshot.knownClassEnums);
     }
 
     public String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attrName, String attrValue) {
@@ -109,12 +213,7 @@ public class AttrResourceLoader extends XmlLoader {
         return packageName + ":" + name;
     }
 
-    private NodeList findNodes(Document document, String path) throws XPathExpressionException {
-        XPathExpression nestedEnumsXPath = XPathFactory.newInstance().newXPath().compile(path);
-        return (NodeList) nestedEnumsXPath.evaluate(document, XPathConstants.NODESET);
-    }
-
-    private void resolveReferences() {
+    private synchronized void resolveReferences() {
         if (!resolved) {
             for (EnumRef enumRef : enumRefs.values()) {
                 noteEnumUses(enumRef.viewName, enumRef.enumName);
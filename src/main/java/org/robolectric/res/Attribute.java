@@ -3,6 +3,7 @@ package org.robolectric.res;
 import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Node;
 
+import java.io.Serializable;
 import java.net.URLEncoder;
 import java.util.List;
 import java.util.logging.Level;
@@ -10,7 +11,9 @@ import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class Attribute {
+public class Attribute implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private static final Logger LOGGER = Logger.getLogger(Attribute.class.getName());
     private static final Pattern NS_URI_PATTERN = Pattern.compile("^http://schemas.android.com/apk/res/(.*)$");
     private static final String RES_AUTO_NS_URI = "http://schemas.android.com/apk/res-auto";
@@ -26,19 +29,21 @@ public class Attribute {
     public Attribute(@NotNull ResName resName, @NotNull String value, @NotNull String contextPackageName) {
         if (!resName.type.equals("attr")) throw new IllegalStateException("\"" + resName.getFullyQualifiedName() + "\" unexpected");
 
-        this.resName = resName;
+        this.resName = resName.intern();
         this.value = value;
         this.contextPackageName = contextPackageName;
     }
 
     public Attribute(Node attr, XmlLoader.XmlContext xmlContext) {
-        this(extractPackageName(attr.getNamespaceURI(), xmlContext) + ":attr/" + attr.getLocalName(),
-                attr.getNodeValue(),
-                xmlContext.packageName);
+        this(attr.getNamespaceURI(), attr.getLocalName(), attr.getNodeValue(), xmlContext);
+    }
+
+    public Attribute(String namespaceUri, String localName, @NotNull String value, XmlLoader.XmlContext xmlContext) {
+        this(extractPackageName(namespaceUri, xmlContext) + ":attr/" + localName, value, xmlContext.packageName);
     }
 
     private static String extractPackageName(String namespaceUri, XmlLoader.XmlContext xmlContext) {
-        if (namespaceUri == null) {
+        if (namespaceUri == null || namespaceUri.length() == 0) {
             return "";
         }
 
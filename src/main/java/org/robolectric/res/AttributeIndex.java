@@ -0,0 +1,105 @@
+package org.robolectric.res;
+
+import java.util.List;
+
+/**
+ * A fixed list of attributes, indexed so they can be found by name or by resource id without scanning.
+ * <p/>
+ * As with {@link Attribute#find}, where several attributes match, the first one wins. Resource ids depend on the
+ * {@link ResourceIndex} they're looked up in, so the id index is built the first time it's needed and rebuilt if it's
+ * asked about a different resource index.
+ */
+public class AttributeIndex {
+    private final Attribute[] attributes;
+    private final int[] nameSlots;
+    private volatile Ids ids;
+
+    public AttributeIndex(List<Attribute> attributes) {
+        this.attributes = attributes.toArray(new Attribute[attributes.size()]);
+        nameSlots = new int[capacity(this.attributes.length)];
+        int mask = nameSlots.length - 1;
+        for (int i = 0; i < this.attributes.length; i++) {
+            ResName resName = this.attributes[i].resName;
+            int slot = slot(resName.hashCode(), mask);
+            while (nameSlots[slot] != 0 && !this.attributes[nameSlots[slot] - 1].resName.equals(resName)) {
+                slot = (slot + 1) & mask;
+            }
+            if (nameSlots[slot] == 0) nameSlots[slot] = i + 1;
+        }
+    }
+
+    public int size() {
+        return attributes.length;
+    }
+
+    public Attribute get(int index) {
+        return attributes[index];
+    }
+
+    public Attribute find(ResName resName) {
+        int mask = nameSlots.length - 1;
+        int entry;
+        for (int slot = slot(resName.hashCode(), mask); (entry = nameSlots[slot]) != 0; slot = (slot + 1) & mask) {
+            Attribute attribute = attributes[entry - 1];
+            if (attribute.resName.equals(resName)) return attribute;
+        }
+        return null;
+    }
+
+    public Attribute find(int attrId, ResourceIndex resourceIndex) {
+        Ids ids = getIds(resourceIndex);
+        int mask = ids.slots.length - 1;
+        int entry;
+        for (int slot = slot(attrId, mask); (entry = ids.slots[slot]) != 0; slot = (slot + 1) & mask) {
+            if (ids.ids[entry - 1] == attrId) return attributes[entry - 1];
+        }
+        return null;
+    }
+
+    /**
+     * @return the resource id of the attribute at {@code index}, or null if it doesn't have one
+     */
+    public Integer getResourceId(int index, ResourceIndex resourceIndex) {
+        return getIds(resourceIndex).ids[index];
+    }
+
+    private Ids getIds(ResourceIndex resourceIndex) {
+        Ids ids = this.ids;
+        if (ids == null || ids.resourceIndex != resourceIndex) {
+            this.ids = ids = new Ids(resourceIndex);
+        }
+        return ids;
+    }
+
+    private static int capacity(int size) {
+        int capacity = 2;
+        while (capacity < size * 2) capacity <<= 1;
+        return capacity;
+    }
+
+    private static int slot(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private class Ids {
+        final ResourceIndex resourceIndex;
+        final Integer[] ids = new Integer[attributes.length];
+        final int[] slots = new int[capacity(attributes.length)];
+
+        Ids(ResourceIndex resourceIndex) {
+            this.resourceIndex = resourceIndex;
+            int mask = slots.length - 1;
+            for (int i = 0; i < attributes.length; i++) {
+                Integer id = resourceIndex.getResourceId(attributes[i].resName);
+                ids[i] = id;
+                if (id == null) continue;
+
+                int slot = slot(id, mask);
+                while (slots[slot] != 0 && !ids[slots[slot] - 1].equals(id)) {
+                    slot = (slot + 1) & mask;
+                }
+                if (slots[slot] == 0) slots[slot] = i + 1;
+            }
+        }
+    }
+}
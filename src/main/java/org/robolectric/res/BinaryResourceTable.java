@@ -0,0 +1,282 @@
+package org.robolectric.res;
+
+import org.robolectric.util.Util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compiled form of a package's parsed resources, kept on disk so that later JVMs can skip parsing the XML.
+ * <p/>
+ * Each section (values, layouts, menus, ...) is stored in its own file, memory-mapped and deserialized only when it is
+ * read. Tables are keyed by the resource directory's path and a hash of the names, sizes and modification times of
+ * every file under it, so any change to the resources makes the old table unreachable. Both keys also include a hash
+ * of the serialized fields of the classes kept in tables, so a change to any of those classes makes old tables
+ * unreachable even if {@link #VERSION} isn't bumped.
+ * <p/>
+ * What each file parsed to is also kept, keyed only by the resource directory's path, so that after a change only the
+ * files that changed need parsing again; see {@link ParsedFileCache}.
+ * <p/>
+ * Each directory notes which resource directory it was made for. When a new one is made, the others made for the same
+ * resource directory are out of date and are deleted.
+ */
+public class BinaryResourceTable {
+    static final int VERSION = 5;
+    static final String SOURCE_FILE_NAME = "source.txt";
+
+    private static final Logger LOGGER = Logger.getLogger(BinaryResourceTable.class.getName());
+    private static final String[] SERIALIZED_CLASS_NAMES = {
+            "org.robolectric.res.Attribute",
+            "org.robolectric.res.AttrResourceLoader$AttrSnapshot",
+            "org.robolectric.res.AttrResourceLoader$EnumDef",
+            "org.robolectric.res.AttrResourceLoader$EnumRef",
+            "org.robolectric.res.DrawableNode",
+            "org.robolectric.res.DrawableNode$ImageFile",
+            "org.robolectric.res.DrawableNode$Xml",
+            "org.robolectric.res.MenuNode",
+            "org.robolectric.res.ParsedFileCache$FileEntry",
+            "org.robolectric.res.PluralResourceLoader$Plural",
+            "org.robolectric.res.PluralResourceLoader$PluralRules",
+            "org.robolectric.res.PreferenceNode",
+            "org.robolectric.res.ResBundle",
+            "org.robolectric.res.ResBundle$FileValues",
+            "org.robolectric.res.ResBundle$ResMap",
+            "org.robolectric.res.ResBundle$Value",
+            "org.robolectric.res.ResBundle$Values",
+            "org.robolectric.res.ResName",
+            "org.robolectric.res.StyleData",
+            "org.robolectric.res.ViewNode",
+            "org.robolectric.res.XmlLoader$XmlContext",
+    };
+    private static String schemaHash;
+
+    private final File cacheDirectory;
+    private final ResourcePath resourcePath;
+    private File tableDir;
+    private File parsedFilesDir;
+
+    public BinaryResourceTable(File cacheDirectory, ResourcePath resourcePath) {
+        this.cacheDirectory = cacheDirectory;
+        this.resourcePath = resourcePath;
+    }
+
+    public Object[] read(String section) {
+        return read(new File(getTableDir(), section + ".bin"));
+    }
+
+    public void write(String section, Object... data) {
+        write(getTableDir(), section, data);
+    }
+
+    Object[] readParsedFiles(String section) {
+        return read(new File(getParsedFilesDir(), section + ".bin"));
+    }
+
+    void writeParsedFiles(String section, Object... data) {
+        write(getParsedFilesDir(), section, data);
+    }
+
+    private Object[] read(File file) {
+        if (!file.exists()) return null;
+
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                ObjectInputStream in = new LocalObjectInputStream(new ByteBufferInputStream(buffer));
+                return (Object[]) in.readObject();
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "couldn't read compiled resources from " + file + ", will reparse", e);
+            return null;
+        }
+    }
+
+    private void write(File tableDir, String section, Object[] data) {
+        if (tableDir.mkdirs()) replaceStaleDirs(tableDir);
+        File file = new File(tableDir, section + ".bin");
+        File tmpFile = new File(tableDir, section + ".bin." + System.nanoTime() + ".tmp");
+
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                out.writeObject(data);
+            } finally {
+                out.close();
+            }
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "couldn't write compiled resources to " + file, e);
+            tmpFile.delete();
+        }
+    }
+
+    private void replaceStaleDirs(File newDir) {
+        String source = resourcePath.resourceBase.getAbsolutePath();
+        try {
+            writeString(new File(newDir, SOURCE_FILE_NAME), source);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "couldn't write to " + newDir, e);
+            return;
+        }
+
+        String prefix = newDir.getName().substring(0, newDir.getName().lastIndexOf('-') + 1);
+        File[] dirs = cacheDirectory.listFiles();
+        if (dirs == null) return;
+        for (File dir : dirs) {
+            if (!dir.equals(newDir) && dir.getName().startsWith(prefix) && source.equals(readString(new File(dir, SOURCE_FILE_NAME)))) {
+                File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                dir.delete();
+            }
+        }
+    }
+
+    private static void writeString(File file, String s) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(s);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String readString(File file) {
+        if (!file.isFile()) return null;
+
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                return new String(Util.readBytes(in), "UTF-8");
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    synchronized File getTableDir() {
+        if (tableDir == null) {
+            tableDir = new File(cacheDirectory, "resources-" + resourcePath.getPackageName() + "-" + contentHash());
+        }
+        return tableDir;
+    }
+
+    synchronized File getParsedFilesDir() {
+        if (parsedFilesDir == null) {
+            MessageDigest digest = newDigest();
+            update(digest, "v" + VERSION + ":" + schemaHash() + ":" + resourcePath.resourceBase.getAbsolutePath());
+            parsedFilesDir = new File(cacheDirectory, "parsed-" + resourcePath.getPackageName() + "-" + toHex(digest));
+        }
+        return parsedFilesDir;
+    }
+
+    private String contentHash() {
+        MessageDigest digest = newDigest();
+        update(digest, "v" + VERSION + ":" + schemaHash() + ":" + resourcePath.resourceBase.getAbsolutePath());
+        addFiles(digest, resourcePath.resourceBase, "");
+        return toHex(digest);
+    }
+
+    static synchronized String schemaHash() {
+        if (schemaHash == null) {
+            MessageDigest digest = newDigest();
+            for (String className : SERIALIZED_CLASS_NAMES) {
+                ObjectStreamClass streamClass;
+                try {
+                    streamClass = ObjectStreamClass.lookup(Class.forName(className, false, BinaryResourceTable.class.getClassLoader()));
+                } catch (ClassNotFoundException e) {
+                    throw new RuntimeException(e);
+                }
+                update(digest, className + ":" + streamClass.getSerialVersionUID() + "\n");
+                for (ObjectStreamField field : streamClass.getFields()) {
+                    String type = field.isPrimitive() ? String.valueOf(field.getTypeCode()) : field.getTypeString();
+                    update(digest, "  " + field.getName() + ":" + type + "\n");
+                }
+            }
+            schemaHash = toHex(digest);
+        }
+        return schemaHash;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(MessageDigest digest) {
+        StringBuilder buf = new StringBuilder();
+        for (byte b : digest.digest()) {
+            buf.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+        }
+        return buf.toString();
+    }
+
+    private static void addFiles(MessageDigest digest, File dir, String relativePath) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        Arrays.sort(files);
+        for (File file : files) {
+            String path = relativePath + "/" + file.getName();
+            if (file.isDirectory()) {
+                addFiles(digest, file, path);
+            } else {
+                update(digest, path + ":" + file.length() + ":" + file.lastModified() + "\n");
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        try {
+            digest.update(s.getBytes("UTF-8"));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class LocalObjectInputStream extends ObjectInputStream {
+        LocalObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, BinaryResourceTable.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
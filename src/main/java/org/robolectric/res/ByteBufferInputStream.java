@@ -0,0 +1,51 @@
+package org.robolectric.res;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads from a byte buffer, usually a memory-mapped file, without copying it. The stream reads through its own view of
+ * the buffer, so one mapping can back any number of streams.
+ */
+class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+    private int markPosition;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+    }
+
+    @Override public synchronized int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override public synchronized int read(byte[] bytes, int offset, int length) {
+        if (length == 0) return 0;
+        if (!buffer.hasRemaining()) return -1;
+        int count = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override public synchronized long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+
+    @Override public synchronized int available() {
+        return buffer.remaining();
+    }
+
+    @Override public boolean markSupported() {
+        return true;
+    }
+
+    @Override public synchronized void mark(int readLimit) {
+        markPosition = buffer.position();
+    }
+
+    @Override public synchronized void reset() {
+        buffer.position(markPosition);
+    }
+}
@@ -1,24 +1,76 @@
 package org.robolectric.res;
 
+import org.robolectric.util.DaemonThreadFactory;
 import org.w3c.dom.Document;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Feeds resource XML files to {@link StreamingXmlLoader}s and {@link XmlLoader}s.
+ * <p/>
+ * Files are parsed on a shared pool of daemon threads, but loaders only see the results ({@link
+ * StreamingXmlLoader.FileHandler#endDocument()} and {@link XmlLoader#processResourceXml}) on the calling thread, one
+ * file at a time and in directory order, so resource bundles are filled exactly as they would be by a sequential load.
+ * <p/>
+ * Given {@link ParsedFiles}, files whose earlier results are still good are restored from them, in their place in
+ * that order, instead of being parsed.
+ */
 public class DocumentLoader {
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executorService;
+
     private static final FileFilter ENDS_WITH_XML = new FileFilter() {
         @Override public boolean accept(File file) {
             return file.getName().endsWith(".xml");
         }
     };
 
-    private final XmlLoader[] xmlLoaders;
+    private final List<StreamingXmlLoader> streamingXmlLoaders = new ArrayList<StreamingXmlLoader>();
+    private final List<XmlLoader> domXmlLoaders = new ArrayList<XmlLoader>();
+    private ParsedFiles parsedFiles;
+    private final XMLInputFactory xmlInputFactory;
     private final DocumentBuilderFactory documentBuilderFactory;
+    private final Queue<DocumentBuilder> documentBuilders = new ConcurrentLinkedQueue<DocumentBuilder>();
+    private int parallelism = THREAD_COUNT;
+
+    public DocumentLoader(StreamingXmlLoader... streamingXmlLoaders) {
+        this(Arrays.asList(streamingXmlLoaders), Collections.<XmlLoader>emptyList());
+    }
 
     public DocumentLoader(XmlLoader... xmlLoaders) {
-        this.xmlLoaders = xmlLoaders;
+        this(Collections.<StreamingXmlLoader>emptyList(), Arrays.asList(xmlLoaders));
+    }
+
+    /**
+     * @param xmlLoaders loaders that need a DOM of each file
+     */
+    public DocumentLoader(List<StreamingXmlLoader> streamingXmlLoaders, List<XmlLoader> xmlLoaders) {
+        this.streamingXmlLoaders.addAll(streamingXmlLoaders);
+        this.domXmlLoaders.addAll(xmlLoaders);
+
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
 
         documentBuilderFactory = DocumentBuilderFactory.newInstance();
         documentBuilderFactory.setNamespaceAware(true);
@@ -26,40 +78,196 @@ public class DocumentLoader {
         documentBuilderFactory.setIgnoringElementContentWhitespace(true);
     }
 
+    /**
+     * Overrides the processor count when deciding whether to parse on the shared pool, so tests can exercise the
+     * parallel path on a single-processor machine.
+     */
+    void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    void useParsedFiles(ParsedFiles parsedFiles) {
+        this.parsedFiles = parsedFiles;
+    }
+
     public void loadResourceXmlSubDirs(ResourcePath resourcePath, final String folderBaseName) throws Exception {
-        File[] files = resourcePath.resourceBase.listFiles(new DirectoryMatchingFileFilter(folderBaseName));
-        if (files == null) {
+        File[] dirs = resourcePath.resourceBase.listFiles(new DirectoryMatchingFileFilter(folderBaseName));
+        if (dirs == null) {
             throw new RuntimeException(resourcePath.resourceBase + " is not a directory");
         }
-        for (File dir : files) {
-            loadResourceXmlDir(resourcePath, dir);
+        List<File> files = new ArrayList<File>();
+        for (File dir : dirs) {
+            addXmlFiles(dir, files);
         }
+        loadResourceXmlFiles(files, resourcePath.getPackageName());
     }
 
     public void loadResourceXmlDir(ResourcePath resourcePath, String dirName) throws Exception {
-        loadResourceXmlDir(resourcePath, new File(resourcePath.resourceBase, dirName));
+        List<File> files = new ArrayList<File>();
+        addXmlFiles(new File(resourcePath.resourceBase, dirName), files);
+        loadResourceXmlFiles(files, resourcePath.getPackageName());
     }
 
-    private void loadResourceXmlDir(ResourcePath resourcePath, File dir) throws Exception {
+    private void addXmlFiles(File dir, List<File> files) {
         if (!dir.exists()) {
             throw new RuntimeException("no such directory " + dir);
         }
 
         for (File file : dir.listFiles(ENDS_WITH_XML)) {
-            loadResourceXmlFile(file, resourcePath.getPackageName());
+            files.add(file);
+        }
+    }
+
+    private void loadResourceXmlFiles(List<File> files, String packageName) throws Exception {
+        List<FileParse> fileParses = new ArrayList<FileParse>(files.size());
+        int parseCount = 0;
+        for (File file : files) {
+            boolean restore = parsedFiles != null && parsedFiles.isParsed(file);
+            fileParses.add(new FileParse(file, new XmlLoader.XmlContext(packageName, file), restore));
+            if (!restore) parseCount++;
+        }
+
+        if (parallelism == 1 || parseCount < 2) {
+            for (FileParse fileParse : fileParses) {
+                fileParse.call().publish();
+            }
+            return;
+        }
+
+        for (Future<FileParse> future : getExecutorService().invokeAll(fileParses)) {
+            try {
+                future.get().publish();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) throw (Exception) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
         }
     }
 
-    private void loadResourceXmlFile(File file, String packageName) throws Exception {
-        Document document = parse(file);
-        for (XmlLoader xmlLoader : xmlLoaders) {
-            xmlLoader.processResourceXml(file, document, packageName);
+    private class FileParse implements Callable<FileParse> {
+        private final File xmlFile;
+        private final XmlLoader.XmlContext xmlContext;
+        private final boolean restore;
+        private final StreamingXmlLoader.FileHandler[] handlers;
+        private Document document;
+
+        FileParse(File xmlFile, XmlLoader.XmlContext xmlContext, boolean restore) {
+            this.xmlFile = xmlFile;
+            this.xmlContext = xmlContext;
+            this.restore = restore;
+
+            handlers = new StreamingXmlLoader.FileHandler[restore ? 0 : streamingXmlLoaders.size()];
+            for (int i = 0; i < handlers.length; i++) {
+                handlers[i] = streamingXmlLoaders.get(i).startFile(xmlFile, xmlContext);
+            }
+        }
+
+        @Override public FileParse call() throws Exception {
+            if (restore) return this;
+            if (handlers.length > 0) {
+                stream(xmlFile, handlers);
+            }
+            if (!domXmlLoaders.isEmpty()) {
+                document = parseDocument(xmlFile);
+            }
+            return this;
+        }
+
+        void publish() throws Exception {
+            if (restore) {
+                parsedFiles.restore(xmlFile);
+                return;
+            }
+            for (StreamingXmlLoader.FileHandler handler : handlers) {
+                handler.endDocument();
+            }
+            for (XmlLoader xmlLoader : domXmlLoaders) {
+                xmlLoader.processResourceXml(xmlFile, document, xmlContext);
+            }
+        }
+    }
+
+    private void stream(File xmlFile, StreamingXmlLoader.FileHandler[] handlers) throws Exception {
+        InputStream in = new BufferedInputStream(new FileInputStream(xmlFile));
+        try {
+            XMLStreamReader reader;
+            synchronized (xmlInputFactory) {
+                reader = xmlInputFactory.createXMLStreamReader(xmlFile.toURI().toString(), in);
+            }
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            depth++;
+                            for (StreamingXmlLoader.FileHandler handler : handlers) {
+                                handler.startElement(reader, depth);
+                            }
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                        case XMLStreamConstants.SPACE:
+                            if (depth == 0) break;
+                            for (StreamingXmlLoader.FileHandler handler : handlers) {
+                                handler.characters(reader);
+                            }
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            for (StreamingXmlLoader.FileHandler handler : handlers) {
+                                handler.endElement(reader, depth);
+                            }
+                            depth--;
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            in.close();
         }
     }
 
-    private Document parse(File xmlFile) throws Exception {
-        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-        return documentBuilder.parse(xmlFile);
+    /**
+     * Document builders can't be shared between threads, so each parse borrows one of this loader's and gives it back
+     * after. They go when the loader does, rather than staying behind on the pool's threads.
+     */
+    private Document parseDocument(File xmlFile) throws Exception {
+        DocumentBuilder documentBuilder = documentBuilders.poll();
+        if (documentBuilder == null) {
+            synchronized (documentBuilderFactory) {
+                documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            }
+        }
+        try {
+            return documentBuilder.parse(xmlFile);
+        } finally {
+            documentBuilder.reset();
+            documentBuilders.offer(documentBuilder);
+        }
+    }
+
+    /**
+     * Results kept from earlier loads, which can stand in for parsing files that haven't changed since.
+     */
+    interface ParsedFiles {
+        /**
+         * @return whether this file's results can be restored instead of parsing it; if so, {@link #restore} will be
+         *         called when its turn comes
+         */
+        boolean isParsed(File xmlFile);
+
+        void restore(File xmlFile) throws Exception;
+    }
+
+    private static synchronized ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = Executors.newFixedThreadPool(THREAD_COUNT,
+                    new DaemonThreadFactory("robolectric-resource-loader-", DocumentLoader.class.getClassLoader()));
+        }
+        return executorService;
     }
 
 }
@@ -3,8 +3,14 @@ package org.robolectric.res;
 import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Document;
 
-public abstract class DrawableNode {
+import java.io.Serializable;
+
+public abstract class DrawableNode implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public static class Xml extends DrawableNode {
+        private static final long serialVersionUID = 1L;
+
         public final @NotNull Document document;
         public final @NotNull XmlLoader.XmlContext xmlContext;
 
@@ -15,6 +21,8 @@ public abstract class DrawableNode {
     }
 
     public static class ImageFile extends DrawableNode {
+        private static final long serialVersionUID = 1L;
+
         public final boolean isNinePatch;
 
         ImageFile(boolean ninePatch) {
@@ -0,0 +1,132 @@
+package org.robolectric.res;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Contents of asset and raw resource files, read once and shared by every stream opened on them afterwards.
+ * <p/>
+ * Small files are kept as byte arrays and larger ones are memory-mapped. Either way, the streams handed out only read
+ * from the shared copy. Entries are keyed by file, size and modification time, so a file that's rewritten during a run
+ * is read again. The least recently used entries are dropped once there are more than {@link #MAX_ENTRIES} of them, or
+ * their bytes or mappings go over {@link #MAX_CACHED_BYTES} or {@link #MAX_MAPPED_BYTES}. A dropped mapping is
+ * released when the garbage collector finds no stream still reading it.
+ */
+public class FileContents {
+    static final int SMALL_FILE_SIZE = 64 * 1024;
+    static final long MAX_CACHED_BYTES = 16 * 1024 * 1024;
+    static final long MAX_MAPPED_BYTES = 256 * 1024 * 1024;
+    static final int MAX_ENTRIES = 256;
+
+    private static final Map<Key, Entry> ENTRIES = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private static long cachedBytes;
+    private static long mappedBytes;
+
+    public static InputStream open(File file) throws IOException {
+        Key key = new Key(file, file.length(), file.lastModified());
+
+        Entry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(key);
+        }
+        if (entry == null) {
+            if (!file.isFile()) throw new FileNotFoundException(file.getPath());
+
+            entry = read(file, key.length);
+            if (entry == null) return new FileInputStream(file);
+            put(key, entry);
+        }
+        return entry.bytes != null ? new ByteArrayInputStream(entry.bytes) : new ByteBufferInputStream(entry.buffer);
+    }
+
+    static int size() {
+        synchronized (ENTRIES) {
+            return ENTRIES.size();
+        }
+    }
+
+    private static Entry read(File file, long length) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            if (length <= SMALL_FILE_SIZE) {
+                byte[] bytes = new byte[(int) length];
+                randomAccessFile.readFully(bytes);
+                return new Entry(bytes, null);
+            } else if (length <= MAX_MAPPED_BYTES) {
+                return new Entry(null, randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length));
+            } else {
+                return null;
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void put(Key key, Entry entry) {
+        synchronized (ENTRIES) {
+            Entry oldEntry = ENTRIES.put(key, entry);
+            if (oldEntry != null) account(oldEntry, -1);
+            account(entry, 1);
+
+            Iterator<Entry> leastRecentlyUsed = ENTRIES.values().iterator();
+            while (leastRecentlyUsed.hasNext()
+                    && (ENTRIES.size() > MAX_ENTRIES || cachedBytes > MAX_CACHED_BYTES || mappedBytes > MAX_MAPPED_BYTES)) {
+                account(leastRecentlyUsed.next(), -1);
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    private static void account(Entry entry, int sign) {
+        if (entry.bytes != null) {
+            cachedBytes += sign * entry.bytes.length;
+        } else {
+            mappedBytes += sign * entry.buffer.capacity();
+        }
+    }
+
+    private static class Key {
+        final File file;
+        final long length;
+        final long lastModified;
+
+        Key(File file, long length, long lastModified) {
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return length == key.length && lastModified == key.lastModified && file.equals(key.file);
+        }
+
+        @Override public int hashCode() {
+            int result = file.hashCode();
+            result = 31 * result + (int) (length ^ (length >>> 32));
+            result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+            return result;
+        }
+    }
+
+    private static class Entry {
+        final byte[] bytes;
+        final ByteBuffer buffer;
+
+        Entry(byte[] bytes, ByteBuffer buffer) {
+            this.bytes = bytes;
+            this.buffer = buffer;
+        }
+    }
+}
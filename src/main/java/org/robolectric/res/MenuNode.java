@@ -1,9 +1,12 @@
 package org.robolectric.res;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class MenuNode {
+public class MenuNode implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private final String name;
     private final List<Attribute> attributes;
     private final List<MenuNode> children = new ArrayList<MenuNode>();
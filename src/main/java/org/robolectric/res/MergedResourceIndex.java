@@ -1,49 +1,61 @@
 package org.robolectric.res;
 
+import java.util.HashMap;
 import java.util.Map;
 
 public class MergedResourceIndex extends ResourceIndex {
     private final ResourceIndex[] subIndexes;
+    private final ResourceIdTable resourceIdTable;
 
     public MergedResourceIndex(ResourceIndex... subIndexes) {
         this.subIndexes = subIndexes;
+
+        Map<ResName, Integer> resourceNameToId = new HashMap<ResName, Integer>();
+        Map<Integer, ResName> resourceIdToResName = new HashMap<Integer, ResName>();
         for (ResourceIndex subIndex : subIndexes) {
-            merge(resourceNameToId, subIndex.resourceNameToId, "resourceNameToId");
-            merge(resourceIdToResName, subIndex.resourceIdToResName, "resourceIdToResName");
+            ResourceIdTable subTable = subIndex.getResourceIdTable();
+            int expectedNames = resourceNameToId.size() + subTable.size();
+            int expectedIds = resourceIdToResName.size() + subTable.idCount();
+            subTable.putAllInto(resourceNameToId, resourceIdToResName);
+            checkNoOverlap(resourceNameToId, expectedNames, "resourceNameToId");
+            checkNoOverlap(resourceIdToResName, expectedIds, "resourceIdToResName");
         }
+        resourceIdTable = new ResourceIdTable(resourceNameToId, resourceIdToResName);
     }
 
-    private static <K,V> void merge(Map<K, V> map1, Map<K, V> map2, String name) {
-        int expected = map1.size() + map2.size();
-        map1.putAll(map2);
-        if (map1.size() != expected) {
-            throw new IllegalStateException("there must have been some overlap for " + name + "! expected " + expected + " but got " + map1.size());
+    private static void checkNoOverlap(Map<?, ?> map, int expected, String name) {
+        if (map.size() != expected) {
+            throw new IllegalStateException("there must have been some overlap for " + name + "! expected " + expected + " but got " + map.size());
         }
     }
 
     @Override
     public Integer getResourceId(ResName resName) {
-        // todo: this is pretty silly...
-        Integer id = resourceNameToId.get(resName);
-        if (id == null) {
-            for (ResourceIndex subIndex : subIndexes) {
-                id = subIndex.getResourceId(resName);
-                if (id != null) return id;
-            }
+        int entry = resourceIdTable.find(resName);
+        if (entry != -1) return resourceIdTable.getId(entry);
+
+        // sub-indexes may know more by now, e.g. ids made up for missing android resources
+        for (ResourceIndex subIndex : subIndexes) {
+            Integer id = subIndex.getResourceId(resName);
+            if (id != null) return id;
         }
-        return id;
+        return null;
     }
 
     @Override
     public ResName getResName(int resourceId) {
-        // todo: this is pretty silly...
-        ResName resName = resourceIdToResName.get(resourceId);
-        if (resName == null) {
-            for (ResourceIndex subIndex : subIndexes) {
-                resName = subIndex.getResName(resourceId);
-                if (resName != null) return resName;
-            }
+        ResName resName = resourceIdTable.getResName(resourceId);
+        if (resName != null) return resName;
+
+        for (ResourceIndex subIndex : subIndexes) {
+            resName = subIndex.getResName(resourceId);
+            if (resName != null) return resName;
         }
-        return resName;
+        return null;
+    }
+
+    @Override
+    ResourceIdTable getResourceIdTable() {
+        return resourceIdTable;
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import java.util.Map;
 
 class OverlayResourceIndex extends ResourceIndex {
     private final String packageName;
+    private final ResourceIdTable resourceIdTable;
 
     public OverlayResourceIndex(String packageName, List<PackageResourceLoader> subResourceLoaders) {
         this(packageName, map(subResourceLoaders));
@@ -23,32 +24,42 @@ class OverlayResourceIndex extends ResourceIndex {
     public OverlayResourceIndex(String packageName, ResourceIndex... subResourceIndexes) {
         this.packageName = packageName;
 
+        Map<ResName, Integer> resourceNameToId = new HashMap<ResName, Integer>();
+        Map<Integer, ResName> resourceIdToResName = new HashMap<Integer, ResName>();
         final ResEntries resEntries = new ResEntries();
         for (ResourceIndex subResourceIndex : subResourceIndexes) {
-            for (Map.Entry<ResName, Integer> entry : subResourceIndex.resourceNameToId.entrySet()) {
-                ResName resName = entry.getKey();
-                int value = entry.getValue();
+            ResourceIdTable subTable = subResourceIndex.getResourceIdTable();
+            for (int i = 0; i < subTable.size(); i++) {
+                ResName resName = subTable.getName(i);
+                Integer value = subTable.getId(i);
                 ResName localResName = resName.withPackageName(packageName);
                 if (OverlayResourceLoader.DEBUG) resEntries.add(localResName, resName, value);
                 resourceNameToId.put(localResName, value);
                 resourceIdToResName.put(value, localResName);
             }
         }
+        resourceIdTable = new ResourceIdTable(resourceNameToId, resourceIdToResName);
 
 //        if (OverlayResourceLoader.DEBUG) resEntries.check(subResourceIndexes);
     }
 
     @Override
     public Integer getResourceId(ResName resName) {
-        return resourceNameToId.get(resName.withPackageName(packageName));
+        int entry = resourceIdTable.find(resName.withPackageName(packageName));
+        return entry == -1 ? null : resourceIdTable.getId(entry);
     }
 
     @Override
     public ResName getResName(int resourceId) {
-        ResName resName = resourceIdToResName.get(resourceId);
+        ResName resName = resourceIdTable.getResName(resourceId);
         return resName == null ? null : resName.withPackageName(packageName);
     }
 
+    @Override
+    ResourceIdTable getResourceIdTable() {
+        return resourceIdTable;
+    }
+
     class ResEntries {
         private final Map<ResName, List<ResEntry>> resEntries = new HashMap<ResName, List<ResEntry>>();
 
@@ -1,11 +1,19 @@
 package org.robolectric.res;
 
-import android.view.View;
+import org.robolectric.util.DaemonThreadFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class OverlayResourceLoader extends XResourceLoader {
     public static final boolean DEBUG = true;
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executorService;
 
     private final String packageName;
     private final List<PackageResourceLoader> subResourceLoaders;
@@ -17,46 +25,71 @@ public class OverlayResourceLoader extends XResourceLoader {
     }
 
     @Override
-    void doInitialize() {
+    void doInitialize(Section section) {
+        initializeSubResourceLoaders(section);
+
         for (PackageResourceLoader subResourceLoader : subResourceLoaders) {
-            subResourceLoader.initialize();
-
-            booleanData.mergeLibraryStyle(subResourceLoader.booleanData, packageName);
-            colorData.mergeLibraryStyle(subResourceLoader.colorData, packageName);
-            dimenData.mergeLibraryStyle(subResourceLoader.dimenData, packageName);
-            integerData.mergeLibraryStyle(subResourceLoader.integerData, packageName);
-            pluralsData.mergeLibraryStyle(subResourceLoader.pluralsData, packageName);
-            stringData.mergeLibraryStyle(subResourceLoader.stringData, packageName);
-            layoutData.mergeLibraryStyle(subResourceLoader.layoutData, packageName);
-            menuData.mergeLibraryStyle(subResourceLoader.menuData, packageName);
-            drawableData.mergeLibraryStyle(subResourceLoader.drawableData, packageName);
-            preferenceData.mergeLibraryStyle(subResourceLoader.preferenceData, packageName);
-            xmlDocuments.mergeLibraryStyle(subResourceLoader.xmlDocuments, packageName);
-            rawResourceFiles.mergeLibraryStyle(subResourceLoader.rawResourceFiles, packageName);
+            ResBundle<?>[] resBundles = resBundles(section);
+            ResBundle<?>[] subResBundles = subResourceLoader.resBundles(section);
+            for (int i = 0; i < resBundles.length; i++) {
+                mergeLibraryStyle(resBundles[i], subResBundles[i]);
+            }
+        }
+
+        if (section == Section.VALUES) {
+            // earlier loaders win, as they did when each was asked in turn
+            for (int i = subResourceLoaders.size() - 1; i >= 0; i--) {
+                attrResourceLoader.merge(subResourceLoaders.get(i).attrResourceLoader);
+            }
         }
     }
 
-    @Override
-    public boolean hasAttributeFor(Class<? extends View> viewClass, String namespace, String attribute) {
-        initialize();
+    /**
+     * Libraries don't depend on each other's resources, so their sections are loaded at the same time.
+     */
+    private void initializeSubResourceLoaders(final Section section) {
+        if (THREAD_COUNT == 1 || subResourceLoaders.size() < 2) {
+            for (PackageResourceLoader subResourceLoader : subResourceLoaders) {
+                subResourceLoader.initialize(section);
+            }
+            return;
+        }
 
-        // todo: this sucks
-        for (PackageResourceLoader subResourceLoader : subResourceLoaders) {
-            boolean b = subResourceLoader.hasAttributeFor(viewClass, namespace, attribute);
-            if (b) return true;
+        List<Callable<Void>> initializations = new ArrayList<Callable<Void>>();
+        for (final PackageResourceLoader subResourceLoader : subResourceLoaders) {
+            initializations.add(new Callable<Void>() {
+                @Override public Void call() throws Exception {
+                    subResourceLoader.initialize(section);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : getExecutorService().invokeAll(initializations)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
         }
-        return false;
     }
 
-    @Override
-    public String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attribute, String part) {
-        initialize();
+    @SuppressWarnings("unchecked")
+    private <T> void mergeLibraryStyle(ResBundle<T> resBundle, ResBundle<?> subResBundle) {
+        resBundle.mergeLibraryStyle((ResBundle<T>) subResBundle, packageName);
+    }
 
-        // todo: this sucks
-        for (PackageResourceLoader subResourceLoader : subResourceLoaders) {
-            String s = subResourceLoader.convertValueToEnum(viewClass, namespace, attribute, part);
-            if (s != null) return s;
+    // separate from DocumentLoader's threads, which these tasks wait on
+    private static synchronized ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = Executors.newCachedThreadPool(
+                    new DaemonThreadFactory("robolectric-library-loader-", OverlayResourceLoader.class.getClassLoader()));
         }
-        return null;
+        return executorService;
     }
 }
@@ -2,18 +2,32 @@ package org.robolectric.res;
 
 import org.robolectric.util.I18nException;
 
+import java.util.Collections;
+
 public class PackageResourceLoader extends XResourceLoader {
     ResourcePath resourcePath;
     ResourceIndex resourceIndex;
+    private final BinaryResourceTable resourceTable;
+    private boolean otherResourcesLoaded;
 
     public PackageResourceLoader(ResourcePath resourcePath) {
+        this(resourcePath, null);
+    }
+
+    /**
+     * @param resourceTable if non-null, parsed resources are read from and saved to this table instead of
+     *                      being parsed from XML every time
+     */
+    public PackageResourceLoader(ResourcePath resourcePath, BinaryResourceTable resourceTable) {
         super(new ResourceExtractor(resourcePath));
         this.resourcePath = resourcePath;
+        this.resourceTable = resourceTable;
     }
 
-    void doInitialize() {
+    void doInitialize(Section section) {
         try {
-            loadEverything();
+            loadOtherResourcesOnce();
+            load(section);
         } catch (I18nException e) {
             throw e;
         } catch (Exception e) {
@@ -21,29 +35,154 @@ public class PackageResourceLoader extends XResourceLoader {
         }
     }
 
-    private void loadEverything() throws Exception {
+    private void load(Section section) throws Exception {
+        switch (section) {
+            case VALUES:
+                loadValues();
+                break;
+            case LAYOUT:
+                loadLayouts();
+                break;
+            case MENU:
+                loadMenus();
+                break;
+            case DRAWABLE:
+                loadDrawables();
+                break;
+            case XML:
+                loadXml();
+                break;
+            case RAW:
+                new RawResourceLoader(rawResourceFiles).loadFrom(resourcePath);
+                break;
+        }
+    }
+
+    /**
+     * Subclasses may add resources of any type, so they're added before the first section is loaded.
+     */
+    private synchronized void loadOtherResourcesOnce() {
+        if (otherResourcesLoaded) return;
+        // once per package, however many sections end up being loaded
         System.out.println("DEBUG: Loading resources for " + resourcePath.getPackageName() + " from " + resourcePath.resourceBase + "...");
+        loadOtherResources(resourcePath);
+        otherResourcesLoaded = true;
+    }
+
+    private void loadValues() throws Exception {
+        Object[] section = readSection("values");
+        if (section != null) {
+            restore(section, booleanData, colorData, dimenData, integerData, pluralsData, stringData, styleData);
+            attrResourceLoader.restore((AttrResourceLoader.AttrSnapshot) section[7]);
+            return;
+        }
 
-        new DocumentLoader(
+        DocumentLoader documentLoader = new DocumentLoader(
                 new ValueResourceLoader(booleanData, "bool", false),
                 new ValueResourceLoader(colorData, "color", false),
                 new ValueResourceLoader(dimenData, "dimen", false),
                 new ValueResourceLoader(integerData, "integer", true),
                 new PluralResourceLoader(resourceIndex, pluralsData),
                 new ValueResourceLoader(stringData, "string", true),
+                new StyleResourceLoader(styleData),
                 attrResourceLoader
-        ).loadResourceXmlSubDirs(resourcePath, "values");
+        );
+        ParsedFileCache parsedFileCache = parsedFileCache(documentLoader, "values", attrResourceLoader,
+                booleanData, colorData, dimenData, integerData, pluralsData, stringData, styleData);
+        documentLoader.loadResourceXmlSubDirs(resourcePath, "values");
+        saveParsedFiles(parsedFileCache);
+
+        writeSection("values", booleanData, colorData, dimenData, integerData, pluralsData, stringData, styleData, attrResourceLoader.snapshot());
+    }
+
+    private void loadLayouts() throws Exception {
+        Object[] section = readSection("layout");
+        if (section != null) {
+            restore(section, layoutData);
+            return;
+        }
+
+        DocumentLoader documentLoader = new DocumentLoader(new ViewLoader(layoutData));
+        ParsedFileCache parsedFileCache = parsedFileCache(documentLoader, "layout", null, layoutData);
+        documentLoader.loadResourceXmlSubDirs(resourcePath, "layout");
+        saveParsedFiles(parsedFileCache);
+        writeSection("layout", layoutData);
+    }
+
+    private void loadMenus() throws Exception {
+        Object[] section = readSection("menu");
+        if (section != null) {
+            restore(section, menuData);
+            return;
+        }
+
+        DocumentLoader documentLoader = new DocumentLoader(new MenuLoader(menuData));
+        ParsedFileCache parsedFileCache = parsedFileCache(documentLoader, "menu", null, menuData);
+        documentLoader.loadResourceXmlSubDirs(resourcePath, "menu");
+        saveParsedFiles(parsedFileCache);
+        writeSection("menu", menuData);
+    }
+
+    private void loadDrawables() throws Exception {
+        Object[] section = readSection("drawable");
+        if (section != null) {
+            restore(section, drawableData);
+            return;
+        }
 
-        new DocumentLoader(new ViewLoader(layoutData)).loadResourceXmlSubDirs(resourcePath, "layout");
-        new DocumentLoader(new MenuLoader(menuData)).loadResourceXmlSubDirs(resourcePath, "menu");
         DrawableResourceLoader drawableResourceLoader = new DrawableResourceLoader(drawableData);
         drawableResourceLoader.findNinePatchResources(resourcePath);
-        new DocumentLoader(drawableResourceLoader).loadResourceXmlSubDirs(resourcePath, "drawable");
-        new DocumentLoader(new PreferenceLoader(preferenceData)).loadResourceXmlSubDirs(resourcePath, "xml");
-        new DocumentLoader(new XmlFileLoader(xmlDocuments)).loadResourceXmlSubDirs(resourcePath, "xml");
-        new RawResourceLoader(rawResourceFiles).loadFrom(resourcePath);
+        DocumentLoader documentLoader = new DocumentLoader(drawableResourceLoader);
+        ParsedFileCache parsedFileCache = parsedFileCache(documentLoader, "drawable", null, drawableData);
+        documentLoader.loadResourceXmlSubDirs(resourcePath, "drawable");
+        saveParsedFiles(parsedFileCache);
+        writeSection("drawable", drawableData);
+    }
 
-        loadOtherResources(resourcePath);
+    private void loadXml() throws Exception {
+        Object[] section = readSection("xml");
+        if (section != null) {
+            restore(section, preferenceData, xmlDocuments);
+            return;
+        }
+
+        DocumentLoader documentLoader = new DocumentLoader(
+                Collections.<StreamingXmlLoader>singletonList(new PreferenceLoader(preferenceData)),
+                Collections.<XmlLoader>singletonList(new XmlFileLoader(xmlDocuments)));
+        ParsedFileCache parsedFileCache = parsedFileCache(documentLoader, "xml", null, preferenceData, xmlDocuments);
+        documentLoader.loadResourceXmlSubDirs(resourcePath, "xml");
+        saveParsedFiles(parsedFileCache);
+        writeSection("xml", preferenceData, xmlDocuments);
+    }
+
+    private ParsedFileCache parsedFileCache(DocumentLoader documentLoader, String section, AttrResourceLoader attrResourceLoader, ResBundle<?>... resBundles) {
+        if (resourceTable == null) return null;
+        ParsedFileCache parsedFileCache = new ParsedFileCache(resourceTable, section, attrResourceLoader, resBundles);
+        documentLoader.useParsedFiles(parsedFileCache);
+        return parsedFileCache;
+    }
+
+    private void saveParsedFiles(ParsedFileCache parsedFileCache) {
+        if (parsedFileCache != null) parsedFileCache.save();
+    }
+
+    private Object[] readSection(String section) {
+        return resourceTable == null ? null : resourceTable.read(section);
+    }
+
+    private void writeSection(String section, Object... data) {
+        if (resourceTable != null) resourceTable.write(section, data);
+    }
+
+    private static void restore(Object[] section, ResBundle<?>... resBundles) {
+        for (int i = 0; i < resBundles.length; i++) {
+            putAll(resBundles[i], section[i]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void putAll(ResBundle<T> resBundle, Object restored) {
+        resBundle.putAll((ResBundle<T>) restored);
     }
 
     protected void loadOtherResources(ResourcePath resourcePath) {
@@ -0,0 +1,105 @@
+package org.robolectric.res;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What each file in a section of resources contributed to its bundles the last time it was parsed, kept in a {@link
+ * BinaryResourceTable} so that when some files change, only those are parsed again.
+ * <p/>
+ * Entries are keyed by path and are only used while the file's size and modification time are unchanged.
+ */
+class ParsedFileCache implements DocumentLoader.ParsedFiles {
+    private final BinaryResourceTable resourceTable;
+    private final String section;
+    private final AttrResourceLoader attrResourceLoader;
+    private final ResBundle<?>[] resBundles;
+    private final Map<String, FileEntry> entries;
+    private final Map<File, FileEntry> seenFiles = new LinkedHashMap<File, FileEntry>();
+    private boolean changed;
+
+    /**
+     * @param attrResourceLoader if non-null, attrs are cached per file along with the bundles
+     */
+    @SuppressWarnings("unchecked")
+    ParsedFileCache(BinaryResourceTable resourceTable, String section, AttrResourceLoader attrResourceLoader, ResBundle<?>... resBundles) {
+        this.resourceTable = resourceTable;
+        this.section = section;
+        this.attrResourceLoader = attrResourceLoader;
+        this.resBundles = resBundles;
+
+        Object[] data = resourceTable.readParsedFiles(section);
+        entries = data == null ? new HashMap<String, FileEntry>() : (Map<String, FileEntry>) data[0];
+        if (attrResourceLoader != null) attrResourceLoader.recordFileSnapshots();
+    }
+
+    @Override public boolean isParsed(File xmlFile) {
+        // noted before parsing, so a file that changes while it's being parsed will be parsed again next time
+        FileEntry seenEntry = new FileEntry(xmlFile.length(), xmlFile.lastModified(), resBundles.length);
+        seenFiles.put(xmlFile, seenEntry);
+        FileEntry entry = entries.get(xmlFile.getPath());
+        boolean parsed = entry != null && entry.length == seenEntry.length && entry.lastModified == seenEntry.lastModified;
+        if (!parsed) changed = true;
+        return parsed;
+    }
+
+    @Override public void restore(File xmlFile) {
+        FileEntry entry = entries.get(xmlFile.getPath());
+        for (int i = 0; i < resBundles.length; i++) {
+            if (entry.fileValues[i] != null) restore(resBundles[i], entry.fileValues[i]);
+        }
+        if (attrResourceLoader != null && entry.attrs != null) {
+            attrResourceLoader.restoreFile(xmlFile, entry.attrs);
+        }
+    }
+
+    /**
+     * Records what every file seen during the load contributed, replacing what was kept before.
+     */
+    void save() {
+        if (!changed && seenFiles.size() == entries.size()) return;
+
+        List<Map<File, ? extends ResBundle.FileValues<?>>> valuesByFile = new ArrayList<Map<File, ? extends ResBundle.FileValues<?>>>();
+        for (ResBundle<?> resBundle : resBundles) {
+            valuesByFile.add(resBundle.valuesByFile());
+        }
+        Map<File, AttrResourceLoader.AttrSnapshot> attrsByFile = attrResourceLoader == null ? null : attrResourceLoader.getFileSnapshots();
+
+        Map<String, FileEntry> newEntries = new HashMap<String, FileEntry>();
+        for (Map.Entry<File, FileEntry> seenFile : seenFiles.entrySet()) {
+            File file = seenFile.getKey();
+            FileEntry entry = seenFile.getValue();
+            for (int i = 0; i < resBundles.length; i++) {
+                entry.fileValues[i] = valuesByFile.get(i).get(file);
+            }
+            entry.attrs = attrsByFile == null ? null : attrsByFile.get(file);
+            newEntries.put(file.getPath(), entry);
+        }
+        resourceTable.writeParsedFiles(section, newEntries);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void restore(ResBundle<T> resBundle, ResBundle.FileValues<?> fileValues) {
+        resBundle.restore((ResBundle.FileValues<T>) fileValues);
+    }
+
+    private static class FileEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long length;
+        final long lastModified;
+        final ResBundle.FileValues<?>[] fileValues;
+        AttrResourceLoader.AttrSnapshot attrs;
+
+        FileEntry(long length, long lastModified, int bundleCount) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.fileValues = new ResBundle.FileValues<?>[bundleCount];
+        }
+    }
+}
@@ -1,37 +1,71 @@
 package org.robolectric.res;
 
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class PluralResourceLoader extends XpathResourceXmlLoader {
+public class PluralResourceLoader extends StreamingXmlLoader {
     private ResBundle<PluralRules> pluralRulesResBundle;
 
     public PluralResourceLoader(ResourceIndex resourceIndex, ResBundle<PluralRules> pluralRulesResBundle) {
-        super("/resources/plurals", "plurals");
         this.pluralRulesResBundle = pluralRulesResBundle;
     }
 
-    @Override protected void processNode(Node node, String name, XmlContext xmlContext, String attrType) throws XPathExpressionException {
-        XPathExpression itemXPath = XPathFactory.newInstance().newXPath().compile("item");
-        NodeList childNodes = (NodeList) itemXPath.evaluate(node, XPathConstants.NODESET);
-        PluralRules rules = new PluralRules();
-        for (int j = 0; j < childNodes.getLength(); j++) {
-            Node childNode = childNodes.item(j);
-            String value = childNode.getTextContent();
-            String quantity = childNode.getAttributes().getNamedItem("quantity").getTextContent();
-            rules.add(new Plural(quantity, value));
-        }
-        pluralRulesResBundle.put(attrType, name, rules, xmlContext);
+    @Override protected FileHandler startFile(File xmlFile, final XmlLoader.XmlContext xmlContext) {
+        return new FileHandler() {
+            boolean inResources;
+
+            String name;
+            PluralRules rules;
+
+            String quantity;
+            StringBuilder value;
+
+            List<String> names = new ArrayList<String>();
+            List<PluralRules> allRules = new ArrayList<PluralRules>();
+
+            @Override protected void startElement(XMLStreamReader reader, int depth) {
+                if (depth == 1) {
+                    inResources = isElement(reader, "resources");
+                } else if (inResources && depth == 2 && isElement(reader, "plurals")) {
+                    name = reader.getAttributeValue(null, "name");
+                    rules = new PluralRules();
+                } else if (rules != null && depth == 3 && isElement(reader, "item")) {
+                    quantity = reader.getAttributeValue(null, "quantity");
+                    value = new StringBuilder();
+                }
+            }
+
+            @Override protected void characters(XMLStreamReader reader) {
+                if (value != null) {
+                    value.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+            }
+
+            @Override protected void endElement(XMLStreamReader reader, int depth) {
+                if (depth == 3 && value != null) {
+                    rules.add(new Plural(quantity, value.toString()));
+                    value = null;
+                } else if (depth == 2 && rules != null) {
+                    names.add(name);
+                    allRules.add(rules);
+                    rules = null;
+                }
+            }
+
+            @Override protected void endDocument() {
+                for (int i = 0; i < names.size(); i++) {
+                    pluralRulesResBundle.put("plurals", names.get(i), allRules.get(i), xmlContext);
+                }
+            }
+        };
     }
 
-    static class PluralRules {
+    static class PluralRules implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         List<Plural> plurals = new ArrayList<Plural>();
 
         Plural find(int quantity) {
@@ -49,7 +83,9 @@ public class PluralResourceLoader extends XpathResourceXmlLoader {
         }
     }
 
-    static class Plural {
+    static class Plural implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         final String quantity, string;
         final int num;
 
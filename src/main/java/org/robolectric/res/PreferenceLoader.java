@@ -1,15 +1,11 @@
 package org.robolectric.res;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-public class PreferenceLoader extends XmlLoader {
+public class PreferenceLoader extends StreamingXmlLoader {
     private final ResBundle<PreferenceNode> resBundle;
 
     public PreferenceLoader(ResBundle<PreferenceNode> resBundle) {
@@ -17,42 +13,31 @@ public class PreferenceLoader extends XmlLoader {
     }
 
     @Override
-    protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
-        PreferenceNode topLevelNode = new PreferenceNode("top-level", new ArrayList<Attribute>());
-        processChildren(document.getChildNodes(), topLevelNode, xmlContext);
-        resBundle.put("xml", xmlFile.getName().replace(".xml", ""), topLevelNode.getChildren().get(0), xmlContext);
-    }
-
-    private void processChildren(NodeList childNodes, PreferenceNode parent, XmlContext xmlContext) {
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node node = childNodes.item(i);
-            processNode(node, parent, xmlContext);
-        }
-    }
-
-    private void processNode(Node node, PreferenceNode parent, XmlContext xmlContext) {
-        String name = node.getNodeName();
-        NamedNodeMap attributes = node.getAttributes();
-        List<Attribute> attrList = new ArrayList<Attribute>();
-
-        if (attributes != null) {
-            int length = attributes.getLength();
-            for (int i = 0; i < length; i++) {
-                Node attr = attributes.item(i);
-                String attrName = ResName.qualifyResourceName(attr.getNodeName(), xmlContext.packageName);
-                if (attrName.startsWith("xmlns:")) {
-                    // ignore
-                } else {
-                    attrList.add(new Attribute(Attribute.addType(attrName, "attr"), attr.getNodeValue(), xmlContext.packageName));
+    protected FileHandler startFile(final File xmlFile, final XmlLoader.XmlContext xmlContext) {
+        final PreferenceNode topLevelNode = new PreferenceNode("top-level", new ArrayList<Attribute>());
+        final List<PreferenceNode> openNodes = new ArrayList<PreferenceNode>();
+        openNodes.add(topLevelNode);
+
+        return new FileHandler() {
+            @Override protected void startElement(XMLStreamReader reader, int depth) {
+                List<Attribute> attrList = new ArrayList<Attribute>();
+                for (int i : sortedAttributeIndexes(reader)) {
+                    String attrName = ResName.qualifyResourceName(attributeName(reader, i), xmlContext.packageName);
+                    attrList.add(new Attribute(Attribute.addType(attrName, "attr"), reader.getAttributeValue(i), xmlContext.packageName));
                 }
+
+                PreferenceNode prefNode = new PreferenceNode(elementName(reader), attrList);
+                openNodes.get(openNodes.size() - 1).addChild(prefNode);
+                openNodes.add(prefNode);
             }
-        }
 
-        if (!name.startsWith("#")) {
-            PreferenceNode prefNode = new PreferenceNode(name, attrList);
-            if (parent != null) parent.addChild(prefNode);
+            @Override protected void endElement(XMLStreamReader reader, int depth) {
+                openNodes.remove(openNodes.size() - 1);
+            }
 
-            processChildren(node.getChildNodes(), prefNode, xmlContext);
-        }
+            @Override protected void endDocument() {
+                resBundle.put("xml", xmlFile.getName().replace(".xml", ""), topLevelNode.getChildren().get(0), xmlContext);
+            }
+        };
     }
 }
@@ -1,10 +1,13 @@
 package org.robolectric.res;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class PreferenceNode {
+public class PreferenceNode implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private final String name;
     private final List<Attribute> attributes;
     private final List<PreferenceNode> children = new ArrayList<PreferenceNode>();
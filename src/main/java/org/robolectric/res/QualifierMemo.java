@@ -0,0 +1,31 @@
+package org.robolectric.res;
+
+/**
+ * Remembers something worked out for one set of qualifiers at a time. Asking with different qualifiers (e.g. after the
+ * configuration is overridden) starts over with a fresh value from {@link #create(String)}.
+ *
+ * @param <V> what's remembered, usually a holder of maps filled in as resources are asked for
+ */
+public abstract class QualifierMemo<V> {
+    private volatile Entry<V> entry;
+
+    public V get(String qualifiers) {
+        Entry<V> entry = this.entry;
+        if (entry == null || !entry.qualifiers.equals(qualifiers)) {
+            this.entry = entry = new Entry<V>(qualifiers, create(qualifiers));
+        }
+        return entry.value;
+    }
+
+    protected abstract V create(String qualifiers);
+
+    private static class Entry<V> {
+        final String qualifiers;
+        final V value;
+
+        Entry(String qualifiers, V value) {
+            this.qualifiers = qualifiers;
+            this.value = value;
+        }
+    }
+}
@@ -1,28 +1,34 @@
 package org.robolectric.res;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ResBundle<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final Object NO_VALUE = new Object();
 
-public class ResBundle<T> {
     private final ResMap<T> valuesMap = new ResMap<T>();
     private final ResMap<List<T>> valuesArrayMap = new ResMap<List<T>>();
     private String overrideNamespace;
+    private transient volatile QualifierMemo<Resolutions> resolutions = newResolutions();
 
     public void put(String attrType, String name, T value, XmlLoader.XmlContext xmlContext) {
         ResName resName = new ResName(maybeOverride(xmlContext.packageName), attrType, name);
-        Values<T> values = valuesMap.find(resName);
-        values.add(new Value<T>(xmlContext.getQualifiers(), value, xmlContext));
-        Collections.sort(values);
+        valuesMap.find(resName).addUnsorted(new Value<T>(xmlContext.getQualifiers(), value, xmlContext));
     }
 
     public void putArray(String attrType, String name, List<T> value, XmlLoader.XmlContext xmlContext) {
         ResName resName = new ResName(maybeOverride(xmlContext.packageName), attrType, name);
-        Values<List<T>> values = valuesArrayMap.find(resName);
-        values.add(new Value<List<T>>(xmlContext.getQualifiers(), value, xmlContext));
-        Collections.sort(values);
+        valuesArrayMap.find(resName).addUnsorted(new Value<List<T>>(xmlContext.getQualifiers(), value, xmlContext));
     }
 
     public T get(ResName resName, String qualifiers) {
@@ -30,9 +36,21 @@ public class ResBundle<T> {
         return value == null ? null : value.value;
     }
 
+    @SuppressWarnings("unchecked")
     public Value<T> getValue(ResName resName, String qualifiers) {
-        Values<T> values = valuesMap.find(maybeOverride(resName));
-        return (values != null) ? pick(values, qualifiers) : null;
+        if (!valuesMap.immutable) {
+            Values<T> values = valuesMap.get(maybeOverride(resName));
+            return (values != null) ? pick(values.sorted(), qualifiers) : null;
+        }
+
+        Resolutions resolutions = this.resolutions.get(qualifiers);
+        Object value = resolutions.values.get(resName);
+        if (value == null) {
+            Values<T> values = valuesMap.get(maybeOverride(resName));
+            value = (values != null) ? pick(values, resolutions.qualifierTokens) : null;
+            resolutions.values.put(resName, value == null ? NO_VALUE : value);
+        }
+        return value == NO_VALUE ? null : (Value<T>) value;
     }
 
     public List<T> getList(ResName resName, String qualifiers) {
@@ -40,29 +58,59 @@ public class ResBundle<T> {
         return value == null ? null : value.value;
     }
 
+    @SuppressWarnings("unchecked")
     public Value<List<T>> getListValue(ResName resName, String qualifiers) {
-        Values<List<T>> values = valuesArrayMap.find(maybeOverride(resName));
-        return (values != null) ? pick(values, qualifiers) : null;
+        if (!valuesArrayMap.immutable) {
+            Values<List<T>> values = valuesArrayMap.get(maybeOverride(resName));
+            return (values != null) ? pick(values.sorted(), qualifiers) : null;
+        }
+
+        Resolutions resolutions = this.resolutions.get(qualifiers);
+        Object value = resolutions.listValues.get(resName);
+        if (value == null) {
+            Values<List<T>> values = valuesArrayMap.get(maybeOverride(resName));
+            value = (values != null) ? pick(values, resolutions.qualifierTokens) : null;
+            resolutions.listValues.put(resName, value == null ? NO_VALUE : value);
+        }
+        return value == NO_VALUE ? null : (Value<List<T>>) value;
+    }
+
+    /**
+     * Picks are remembered for one set of qualifiers at a time.
+     */
+    private static QualifierMemo<Resolutions> newResolutions() {
+        return new QualifierMemo<Resolutions>() {
+            @Override protected Resolutions create(String qualifiers) {
+                return new Resolutions(qualifiers);
+            }
+        };
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        resolutions = newResolutions();
     }
 
     public static <T> Value<T> pick(Values<T> values, String qualifiers) {
+        return pick(values, qualifiers.split("-"));
+    }
+
+    static <T> Value<T> pick(Values<T> values, String[] qualifierList) {
         final int count = values.size();
         if (count >= Long.SIZE) throw new RuntimeException("really, more than " + Long.SIZE + " qualifiers?!?");
         if (count == 0) return null;
 
         long possibles = 0;
-        for (int i = 0; i < count; i++) possibles |= 1 << i;
+        for (int i = 0; i < count; i++) possibles |= 1L << i;
 
-        String[] qualifierList = qualifiers.split("-");
         for (String qualifier : qualifierList) {
-            String paddedQualifier = "-" + qualifier + "-";
             long matches = 0;
 
             for (int i = 0; i < count; i++) {
-                if ((possibles & (1 << i)) == 0) continue;
+                if ((possibles & (1L << i)) == 0) continue;
 
-                if (values.get(i).qualifiers.contains(paddedQualifier)) {
-                    matches |= 1 << i;
+                if (values.get(i).hasQualifier(qualifier)) {
+                    matches |= 1L << i;
                 }
             }
 
@@ -74,15 +122,19 @@ public class ResBundle<T> {
         }
 
         for (int i = 0; i < count; i++) {
-            if ((possibles & (1 << i)) != 0) return values.get(i);
+            if ((possibles & (1L << i)) != 0) return values.get(i);
         }
-        throw new IllegalStateException("couldn't handle qualifiers \"" + qualifiers + "\"");
+        throw new IllegalStateException("couldn't handle qualifiers \"" + join(qualifierList) + "\"");
     }
 
     public int size() {
         return valuesMap.size() + valuesArrayMap.size();
     }
 
+    boolean isImmutable() {
+        return valuesMap.immutable && valuesArrayMap.immutable;
+    }
+
     public void makeImmutable() {
         valuesMap.makeImmutable();
         valuesArrayMap.makeImmutable();
@@ -101,13 +153,73 @@ public class ResBundle<T> {
         return overrideNamespace == null ? resName : new ResName(overrideNamespace, resName.type, resName.name);
     }
 
+    void putAll(ResBundle<T> fromResBundle) {
+        valuesMap.putAll(fromResBundle.valuesMap);
+        valuesArrayMap.putAll(fromResBundle.valuesArrayMap);
+    }
+
     public void mergeLibraryStyle(ResBundle<T> fromResBundle, String packageName) {
         valuesMap.merge(packageName, fromResBundle.valuesMap);
         valuesArrayMap.merge(packageName, fromResBundle.valuesArrayMap);
     }
 
-    static class Value<T> implements Comparable<Value<T>> {
+    /**
+     * Groups this bundle's values by the file they were loaded from.
+     */
+    Map<File, FileValues<T>> valuesByFile() {
+        Map<File, FileValues<T>> valuesByFile = new HashMap<File, FileValues<T>>();
+        for (Map.Entry<ResName, Values<T>> entry : valuesMap.map.entrySet()) {
+            for (Value<T> value : entry.getValue()) {
+                fileValues(valuesByFile, value.xmlContext.getXmlFile()).add(entry.getKey(), value);
+            }
+        }
+        for (Map.Entry<ResName, Values<List<T>>> entry : valuesArrayMap.map.entrySet()) {
+            for (Value<List<T>> value : entry.getValue()) {
+                fileValues(valuesByFile, value.xmlContext.getXmlFile()).addArray(entry.getKey(), value);
+            }
+        }
+        return valuesByFile;
+    }
+
+    private static <T> FileValues<T> fileValues(Map<File, FileValues<T>> valuesByFile, File file) {
+        FileValues<T> fileValues = valuesByFile.get(file);
+        if (fileValues == null) valuesByFile.put(file, fileValues = new FileValues<T>());
+        return fileValues;
+    }
+
+    void restore(FileValues<T> fileValues) {
+        for (int i = 0; i < fileValues.names.size(); i++) {
+            valuesMap.find(fileValues.names.get(i)).addUnsorted(fileValues.values.get(i));
+        }
+        for (int i = 0; i < fileValues.arrayNames.size(); i++) {
+            valuesArrayMap.find(fileValues.arrayNames.get(i)).addUnsorted(fileValues.arrayValues.get(i));
+        }
+    }
+
+    private static String join(String[] qualifierList) {
+        StringBuilder buf = new StringBuilder();
+        for (String qualifier : qualifierList) {
+            if (buf.length() > 0) buf.append("-");
+            buf.append(qualifier);
+        }
+        return buf.toString();
+    }
+
+    private static class Resolutions {
+        final String[] qualifierTokens;
+        final Map<ResName, Object> values = new ConcurrentHashMap<ResName, Object>();
+        final Map<ResName, Object> listValues = new ConcurrentHashMap<ResName, Object>();
+
+        Resolutions(String qualifiers) {
+            this.qualifierTokens = qualifiers.split("-");
+        }
+    }
+
+    static class Value<T> implements Comparable<Value<T>>, Serializable {
+        private static final long serialVersionUID = 1L;
+
         final String qualifiers;
+        final String[] qualifierTokens;
         final T value;
         final XmlLoader.XmlContext xmlContext;
 
@@ -118,28 +230,92 @@ public class ResBundle<T> {
 
             this.xmlContext = xmlContext;
             this.qualifiers = qualifiers == null ? "--" : "-" + qualifiers + "-";
+            this.qualifierTokens = (qualifiers == null ? "" : qualifiers).split("-");
             this.value = value;
         }
 
+        boolean hasQualifier(String qualifier) {
+            for (String qualifierToken : qualifierTokens) {
+                if (qualifierToken.equals(qualifier)) return true;
+            }
+            return false;
+        }
+
         @Override
         public int compareTo(Value<T> o) {
             return qualifiers.compareTo(o.qualifiers);
         }
     }
 
+    /**
+     * The values one file contributed to a bundle.
+     */
+    static class FileValues<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ResName> names = new ArrayList<ResName>();
+        private final List<Value<T>> values = new ArrayList<Value<T>>();
+        private final List<ResName> arrayNames = new ArrayList<ResName>();
+        private final List<Value<List<T>>> arrayValues = new ArrayList<Value<List<T>>>();
+
+        private void add(ResName resName, Value<T> value) {
+            names.add(resName);
+            values.add(value);
+        }
+
+        private void addArray(ResName resName, Value<List<T>> value) {
+            arrayNames.add(resName);
+            arrayValues.add(value);
+        }
+    }
+
+    /**
+     * A name's candidate values, ordered by qualifiers. Values added while loading are only sorted when the list is
+     * next read, merged or frozen, so loading many variants of a name doesn't re-sort the list each time.
+     */
     static class Values<T> extends ArrayList<Value<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private boolean unsorted;
+
+        void addUnsorted(Value<T> value) {
+            add(value);
+            unsorted = true;
+        }
+
+        Values<T> sorted() {
+            if (unsorted) {
+                Collections.sort(this);
+                unsorted = false;
+            }
+            return this;
+        }
     }
 
-    private static class ResMap<T> {
+    private static class ResMap<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         private final Map<ResName, Values<T>> map = new HashMap<ResName, Values<T>>();
-        private boolean immutable;
+        private volatile boolean immutable;
+
+        public Values<T> get(ResName resName) {
+            return map.get(resName);
+        }
 
         public Values<T> find(ResName resName) {
             Values<T> values = map.get(resName);
-            if (values == null) map.put(resName, values = new Values<T>());
+            if (values == null) map.put(resName.intern(), values = new Values<T>());
             return values;
         }
 
+        private void putAll(ResMap<T> sourceMap) {
+            if (immutable) {
+                throw new IllegalStateException("immutable!");
+            }
+
+            map.putAll(sourceMap.map);
+        }
+
         private void merge(String packageName, ResMap<T> sourceMap) {
             if (immutable) {
                 throw new IllegalStateException("immutable!");
@@ -147,7 +323,7 @@ public class ResBundle<T> {
 
             for (Map.Entry<ResName, Values<T>> entry : sourceMap.map.entrySet()) {
                 ResName resName = entry.getKey().withPackageName(packageName);
-                find(resName).addAll(entry.getValue());
+                find(resName).sorted().addAll(entry.getValue().sorted());
             }
         }
 
@@ -156,6 +332,9 @@ public class ResBundle<T> {
         }
 
         public void makeImmutable() {
+            for (Values<T> values : map.values()) {
+                values.sorted().trimToSize();
+            }
             immutable = true;
         }
     }
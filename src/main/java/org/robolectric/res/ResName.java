@@ -2,37 +2,83 @@ package org.robolectric.res;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
 
-public class ResName {
-    private static final Pattern FQN_PATTERN = Pattern.compile("^([^:]*):([^/]+)/(.+)$");
-    private static final int NAMESPACE = 1;
-    private static final int TYPE = 2;
-    private static final int NAME = 3;
+public class ResName implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final Map<ResName, WeakReference<ResName>> INTERNED = new WeakHashMap<ResName, WeakReference<ResName>>();
 
     public final @NotNull String namespace;
     public final @NotNull String type;
     public final @NotNull String name;
+    private final int hashCode;
 
     public ResName(@NotNull String namespace, @NotNull String type, @NotNull String name) {
         this.name = name;
         this.namespace = namespace;
         this.type = type;
+        this.hashCode = hashCode(namespace, type, name);
     }
 
+    /**
+     * @param fullyQualifiedName of the form {@code namespace:type/name}
+     */
     public ResName(@NotNull String fullyQualifiedName) {
-        Matcher matcher = FQN_PATTERN.matcher(fullyQualifiedName);
-        if (!matcher.find()) {
+        int colon = fullyQualifiedName.indexOf(':');
+        int slash = colon == -1 ? -1 : fullyQualifiedName.indexOf('/', colon + 1);
+        if (slash == -1 || slash == colon + 1 || slash == fullyQualifiedName.length() - 1) {
             throw new IllegalStateException("\"" + fullyQualifiedName + "\" is not fully qualified");
         }
-        namespace = matcher.group(NAMESPACE);
-        type = matcher.group(TYPE);
-        name = matcher.group(NAME);
+        namespace = fullyQualifiedName.substring(0, colon);
+        type = fullyQualifiedName.substring(colon + 1, slash);
+        name = fullyQualifiedName.substring(slash + 1);
+        hashCode = hashCode(namespace, type, name);
 
         if (namespace.equals("xmlns")) throw new IllegalStateException("\"" + fullyQualifiedName + "\" unexpected");
     }
 
+    /**
+     * Returns the shared instance equal to this name, so that long-lived names aren't duplicated and mostly compare
+     * by identity. Shared instances are only held weakly.
+     */
+    public ResName intern() {
+        synchronized (INTERNED) {
+            WeakReference<ResName> reference = INTERNED.get(this);
+            ResName interned = reference == null ? null : reference.get();
+            if (interned == null) {
+                INTERNED.put(this, new WeakReference<ResName>(this));
+                interned = this;
+            }
+            return interned;
+        }
+    }
+
+    private Object readResolve() {
+        return intern();
+    }
+
+    /**
+     * Same as {@code new ResName(qualifyResourceName(possiblyQualifiedResourceName, contextPackageName))}, without
+     * the intermediate string or a regex match.
+     */
+    public static @NotNull ResName qualifyResName(String possiblyQualifiedResourceName, String contextPackageName) {
+        int colon = possiblyQualifiedResourceName.indexOf(':');
+        int slash = possiblyQualifiedResourceName.indexOf('/', colon + 1);
+        if (slash == colon + 1 || slash == -1 || slash == possiblyQualifiedResourceName.length() - 1) {
+            throw new IllegalStateException("\"" + qualifyResourceName(possiblyQualifiedResourceName, contextPackageName) + "\" is not fully qualified");
+        }
+
+        String namespace = colon == -1 ? contextPackageName : possiblyQualifiedResourceName.substring(0, colon);
+        if (namespace.equals("xmlns")) throw new IllegalStateException("\"" + possiblyQualifiedResourceName + "\" unexpected");
+        return new ResName(namespace,
+                possiblyQualifiedResourceName.substring(colon + 1, slash),
+                possiblyQualifiedResourceName.substring(slash + 1));
+    }
+
     public static @NotNull String qualifyResourceName(String possiblyQualifiedResourceName, String contextPackageName) {
         if (possiblyQualifiedResourceName.contains(":")) {
             return possiblyQualifiedResourceName;
@@ -69,6 +115,7 @@ public class ResName {
 
         ResName resName = (ResName) o;
 
+        if (hashCode != resName.hashCode) return false;
         if (!namespace.equals(resName.namespace)) return false;
         if (!type.equals(resName.type)) return false;
         if (!name.equals(resName.name)) return false;
@@ -78,6 +125,10 @@ public class ResName {
 
     @Override
     public int hashCode() {
+        return hashCode;
+    }
+
+    private static int hashCode(String namespace, String type, String name) {
         int result = namespace.hashCode();
         result = 31 * result + type.hashCode();
         result = 31 * result + name.hashCode();
@@ -2,30 +2,37 @@ package org.robolectric.res;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ResourceExtractor extends ResourceIndex {
     private static final ResourceRemapper RESOURCE_REMAPPER = new ResourceRemapper();
     private static final boolean REMAP_RESOURCES = false;
 
-    private Class<?> processedRFile = null;
+    private final Class<?> processedRFile;
+    private final ResourceIdTable resourceIdTable;
+
+    // ids made up on demand for android resources missing from the R class
+    private final Map<ResName, Integer> assignedIds = new ConcurrentHashMap<ResName, Integer>();
+    private final Map<Integer, ResName> assignedResNames = new ConcurrentHashMap<Integer, ResName>();
     private Integer maxUsedInt = null;
 
     public ResourceExtractor() {
+        processedRFile = null;
+        resourceIdTable = ResourceIdTable.EMPTY;
     }
 
     public ResourceExtractor(ResourcePath resourcePath) {
-        addRClass(resourcePath.rClass);
+        processedRFile = resourcePath.rClass;
+        resourceIdTable = extract(resourcePath.rClass);
     }
 
-    private void addRClass(Class<?> rClass) {
+    private static ResourceIdTable extract(Class<?> rClass) {
         if (REMAP_RESOURCES) RESOURCE_REMAPPER.remapRClass(rClass);
 
-        if (processedRFile != null) {
-            System.out.println("WARN: already extracted resources for " + rClass.getPackage().getName() + ", skipping. You should probably fix this.");
-            return;
-        }
-        processedRFile = rClass;
+        Map<ResName, Integer> resourceNameToId = new HashMap<ResName, Integer>();
+        Map<Integer, ResName> resourceIdToResName = new HashMap<Integer, ResName>();
         String packageName = rClass.getPackage().getName();
 
         for (Class innerClass : rClass.getClasses()) {
@@ -41,7 +48,7 @@ public class ResourceExtractor extends ResourceIndex {
 
                   if (!section.equals("styleable")) {
                     String fieldName = field.getName();
-                    ResName resName = new ResName(packageName, section, fieldName);
+                    ResName resName = new ResName(packageName, section, fieldName).intern();
 
                     resourceNameToId.put(resName, value);
 
@@ -61,26 +68,48 @@ public class ResourceExtractor extends ResourceIndex {
                 }
             }
         }
+
+        return new ResourceIdTable(resourceNameToId, resourceIdToResName);
     }
 
     @Override
-    public synchronized Integer getResourceId(ResName resName) {
-        Integer id = resourceNameToId.get(resName);
+    public Integer getResourceId(ResName resName) {
+        int entry = resourceIdTable.find(resName);
+        if (entry != -1) return resourceIdTable.getId(entry);
+
+        Integer id = assignedIds.get(resName);
         if (id == null && ("android".equals(resName.namespace) || "".equals(resName.namespace))) {
-            if (maxUsedInt == null) {
-                maxUsedInt = resourceIdToResName.isEmpty() ? 0 : Collections.max(resourceIdToResName.keySet());
-            }
-            id = ++maxUsedInt;
-            resourceNameToId.put(resName, id);
-            resourceIdToResName.put(id, resName);
-            System.out.println("INFO: no id mapping found for " + resName.getFullyQualifiedName() + "; assigning " + id);
+            id = assignId(resName);
+        }
+        return id;
+    }
+
+    private synchronized Integer assignId(ResName resName) {
+        Integer id = assignedIds.get(resName);
+        if (id != null) return id;
+
+        if (maxUsedInt == null) {
+            maxUsedInt = resourceIdTable.maxId();
         }
+        id = ++maxUsedInt;
+        assignedResNames.put(id, resName);
+        assignedIds.put(resName, id);
+        System.out.println("INFO: no id mapping found for " + resName.getFullyQualifiedName() + "; assigning " + id);
         return id;
     }
 
     @Override
-    public synchronized ResName getResName(int resourceId) {
-        return resourceIdToResName.get(resourceId);
+    public ResName getResName(int resourceId) {
+        ResName resName = resourceIdTable.getResName(resourceId);
+        if (resName == null && !assignedResNames.isEmpty()) {
+            resName = assignedResNames.get(resourceId);
+        }
+        return resName;
+    }
+
+    @Override
+    ResourceIdTable getResourceIdTable() {
+        return resourceIdTable;
     }
 
     @Override public String toString() {
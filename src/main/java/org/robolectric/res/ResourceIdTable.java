@@ -0,0 +1,108 @@
+package org.robolectric.res;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable two-way mapping between {@link ResName}s and resource ids, kept in flat arrays so lookups don't lock
+ * or allocate.
+ * <p/>
+ * Names are found through an open-addressed hash of entry indexes; ids are found by binary search over a sorted
+ * {@code int[]}. Ids are boxed once up front, since that's how {@link ResourceIndex} hands them out.
+ */
+class ResourceIdTable {
+    static final ResourceIdTable EMPTY = new ResourceIdTable(new HashMap<ResName, Integer>(), new HashMap<Integer, ResName>());
+
+    private final ResName[] names;
+    private final Integer[] ids;
+    private final int[] nameSlots;
+
+    private final int[] sortedIds;
+    private final ResName[] namesBySortedId;
+
+    /**
+     * @param idToResName which name to report for each id; where several names share an id, this picks one
+     */
+    ResourceIdTable(Map<ResName, Integer> resNameToId, Map<Integer, ResName> idToResName) {
+        names = new ResName[resNameToId.size()];
+        ids = new Integer[resNameToId.size()];
+        int i = 0;
+        for (Map.Entry<ResName, Integer> entry : resNameToId.entrySet()) {
+            names[i] = entry.getKey();
+            ids[i] = entry.getValue();
+            i++;
+        }
+
+        int capacity = 2;
+        while (capacity < names.length * 2) capacity <<= 1;
+        nameSlots = new int[capacity];
+        for (i = 0; i < names.length; i++) {
+            int slot = slot(names[i], capacity - 1);
+            while (nameSlots[slot] != 0) slot = (slot + 1) & (capacity - 1);
+            nameSlots[slot] = i + 1;
+        }
+
+        sortedIds = new int[idToResName.size()];
+        i = 0;
+        for (Integer id : idToResName.keySet()) sortedIds[i++] = id;
+        Arrays.sort(sortedIds);
+        namesBySortedId = new ResName[sortedIds.length];
+        for (i = 0; i < sortedIds.length; i++) {
+            namesBySortedId[i] = idToResName.get(sortedIds[i]);
+        }
+    }
+
+    /**
+     * @return the index of the entry for {@code resName}, or -1
+     */
+    int find(ResName resName) {
+        int mask = nameSlots.length - 1;
+        int slot = slot(resName, mask);
+        int entry;
+        while ((entry = nameSlots[slot]) != 0) {
+            if (names[entry - 1].equals(resName)) return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int slot(ResName resName, int mask) {
+        int h = resName.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    ResName getName(int entry) {
+        return names[entry];
+    }
+
+    Integer getId(int entry) {
+        return ids[entry];
+    }
+
+    ResName getResName(int resourceId) {
+        int i = Arrays.binarySearch(sortedIds, resourceId);
+        return i < 0 ? null : namesBySortedId[i];
+    }
+
+    int idCount() {
+        return sortedIds.length;
+    }
+
+    void putAllInto(Map<ResName, Integer> resNameToId, Map<Integer, ResName> idToResName) {
+        for (int i = 0; i < names.length; i++) {
+            resNameToId.put(names[i], ids[i]);
+        }
+        for (int i = 0; i < sortedIds.length; i++) {
+            idToResName.put(sortedIds[i], namesBySortedId[i]);
+        }
+    }
+
+    int maxId() {
+        return sortedIds.length == 0 ? 0 : sortedIds[sortedIds.length - 1];
+    }
+}
@@ -1,12 +1,6 @@
 package org.robolectric.res;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public abstract class ResourceIndex {
-    final Map<ResName, Integer> resourceNameToId = new HashMap<ResName, Integer>();
-    final Map<Integer, ResName> resourceIdToResName = new HashMap<Integer, ResName>();
-
     public abstract Integer getResourceId(ResName resName);
 
     public String getResourceName(int resourceId) {
@@ -15,4 +9,11 @@ public abstract class ResourceIndex {
     }
 
     public abstract ResName getResName(int resourceId);
+
+    /**
+     * The fixed set of ids this index knows about, for indexes built out of other indexes.
+     */
+    ResourceIdTable getResourceIdTable() {
+        return ResourceIdTable.EMPTY;
+    }
 }
@@ -40,6 +40,8 @@ public interface ResourceLoader {
 
     MenuNode getMenuNode(ResName resName, String qualifiers);
 
+    StyleData getStyle(ResName resName, String qualifiers);
+
     boolean hasAttributeFor(Class<? extends View> viewClass, String namespace, String attribute);
 
     String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attribute, String part);
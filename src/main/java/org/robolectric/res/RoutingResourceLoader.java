@@ -102,6 +102,11 @@ public class RoutingResourceLoader implements ResourceLoader {
         return pickFor(resName).getMenuNode(resName, qualifiers);
     }
 
+    @Override
+    public StyleData getStyle(ResName resName, String qualifiers) {
+        return pickFor(resName).getStyle(resName, qualifiers);
+    }
+
     @Override
     public boolean hasAttributeFor(Class<? extends View> viewClass, String namespace, String attribute) {
         return pickFor(namespace).hasAttributeFor(viewClass, namespace, attribute);
@@ -136,7 +141,7 @@ public class RoutingResourceLoader implements ResourceLoader {
         }
 
         @Override
-        void doInitialize() {
+        void doInitialize(Section section) {
         }
 
         @Override
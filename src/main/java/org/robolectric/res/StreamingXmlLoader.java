@@ -0,0 +1,81 @@
+package org.robolectric.res;
+
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+
+/**
+ * Reads resource files as a stream of parse events. Unlike an {@link XmlLoader}, it never sees a DOM.
+ * <p/>
+ * {@link DocumentLoader} parses each file once and hands every event to all of its streaming loaders, so no
+ * document is built for them. A loader gets a fresh {@link FileHandler} for each file it sees; the handler
+ * keeps whatever per-file state it needs and must not advance the reader itself.
+ * <p/>
+ * Files may be parsed on other threads and several at a time, so handlers must keep what they find to themselves
+ * until {@link FileHandler#endDocument()}, which is called on the loading thread, one file at a time, in file order.
+ */
+public abstract class StreamingXmlLoader {
+    protected abstract FileHandler startFile(File xmlFile, XmlLoader.XmlContext xmlContext);
+
+    public abstract static class FileHandler {
+        /**
+         * @param depth 1 for the root element
+         */
+        protected void startElement(XMLStreamReader reader, int depth) throws Exception {
+        }
+
+        protected void characters(XMLStreamReader reader) throws Exception {
+        }
+
+        protected void endElement(XMLStreamReader reader, int depth) throws Exception {
+        }
+
+        protected void endDocument() throws Exception {
+        }
+    }
+
+    /**
+     * Whether the reader is on an element with the given local name and no namespace, which is what the XPath name
+     * tests these loaders used to use would have matched.
+     */
+    static boolean isElement(XMLStreamReader reader, String localName) {
+        return localName.equals(reader.getLocalName()) && isEmpty(reader.getNamespaceURI());
+    }
+
+    static String elementName(XMLStreamReader reader) {
+        return qualifiedName(reader.getPrefix(), reader.getLocalName());
+    }
+
+    static String attributeName(XMLStreamReader reader, int index) {
+        return qualifiedName(reader.getAttributePrefix(index), reader.getAttributeLocalName(index));
+    }
+
+    /**
+     * Indexes of the current element's attributes, sorted by qualified name. This is the order a DOM presents them
+     * in, and callers that expose attributes by position rely on it.
+     */
+    static int[] sortedAttributeIndexes(XMLStreamReader reader) {
+        int count = reader.getAttributeCount();
+        int[] indexes = new int[count];
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            String name = attributeName(reader, i);
+            int j = i;
+            while (j > 0 && names[j - 1].compareTo(name) > 0) {
+                names[j] = names[j - 1];
+                indexes[j] = indexes[j - 1];
+                j--;
+            }
+            names[j] = name;
+            indexes[j] = i;
+        }
+        return indexes;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return isEmpty(prefix) ? localName : prefix + ":" + localName;
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.length() == 0;
+    }
+}
@@ -0,0 +1,150 @@
+package org.robolectric.res;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A style or theme with everything it inherits folded in, so an attribute is found with one lookup however deep the
+ * chain of parents is.
+ * <p/>
+ * A theme is just a style built by applying styles one after another. It also remembers, for each array of attr ids
+ * it's asked about along with a default style, which attribute supplies each entry, with references to the theme's
+ * own attributes ({@code ?attr/...}) already followed. Those are held only as long as the array is, so views that
+ * build a new array on every call don't fill the theme up.
+ */
+public class Style {
+    private static final int MAX_THEME_REFERENCES = 32;
+
+    private final Map<ResName, Attribute> attributes;
+    // int[] keys are compared by identity
+    private final Map<int[], Map<Key, Attribute[]>> resolvedAttrs = new WeakHashMap<int[], Map<Key, Attribute[]>>();
+
+    Style(Map<ResName, Attribute> attributes) {
+        this.attributes = attributes;
+    }
+
+    public Attribute getAttribute(ResName attrName) {
+        return attributes.get(attrName);
+    }
+
+    public int size() {
+        return attributes.size();
+    }
+
+    Map<ResName, Attribute> attributes() {
+        return attributes;
+    }
+
+    /**
+     * @param force if false, attributes this style already has are left alone
+     * @return this style with {@code style}'s attributes applied over it
+     */
+    public Style apply(Style style, boolean force) {
+        if (style.attributes.isEmpty()) return this;
+
+        Map<ResName, Attribute> applied = new HashMap<ResName, Attribute>(attributes);
+        for (Attribute attribute : style.attributes.values()) {
+            if (force || !applied.containsKey(attribute.resName)) {
+                applied.put(attribute.resName, attribute);
+            }
+        }
+        return new Style(applied);
+    }
+
+    /**
+     * Finds the attribute for each of {@code attrIds}, taking it from {@code defStyle} if that has it and otherwise
+     * from this theme. Results are cached by the identity of {@code attrIds}, which is normally a static array from an
+     * R class, until that array is garbage collected.
+     *
+     * @return an array parallel to {@code attrIds}, with null where neither has a value; callers must not modify it
+     */
+    public Attribute[] resolve(int[] attrIds, Style defStyle, ResourceIndex resourceIndex) {
+        Key key = new Key(defStyle, resourceIndex);
+        Attribute[] resolved;
+        synchronized (resolvedAttrs) {
+            Map<Key, Attribute[]> resolvedByKey = resolvedAttrs.get(attrIds);
+            resolved = resolvedByKey == null ? null : resolvedByKey.get(key);
+        }
+        if (resolved == null) {
+            resolved = new Attribute[attrIds.length];
+            for (int i = 0; i < attrIds.length; i++) {
+                ResName attrName = resourceIndex.getResName(attrIds[i]);
+                if (attrName == null) continue;
+
+                Attribute attribute = defStyle == null ? null : defStyle.getAttribute(attrName);
+                if (attribute == null) attribute = getAttribute(attrName);
+                if (attribute == null) continue;
+
+                attribute = resolveThemeReference(attribute);
+                if (attribute != null && !attribute.resName.equals(attrName)) {
+                    attribute = new Attribute(attrName, attribute.value, attribute.contextPackageName);
+                }
+                resolved[i] = attribute;
+            }
+            synchronized (resolvedAttrs) {
+                Map<Key, Attribute[]> resolvedByKey = resolvedAttrs.get(attrIds);
+                if (resolvedByKey == null) resolvedAttrs.put(attrIds, resolvedByKey = new HashMap<Key, Attribute[]>());
+                resolvedByKey.put(key, resolved);
+            }
+        }
+        return resolved;
+    }
+
+    int resolvedAttrsSize() {
+        synchronized (resolvedAttrs) {
+            return resolvedAttrs.size();
+        }
+    }
+
+    /**
+     * Follows {@code ?attr/name} values to the attribute they refer to in this theme.
+     *
+     * @return the attribute itself if its value isn't a theme reference, or null if the reference can't be followed
+     */
+    public Attribute resolveThemeReference(Attribute attribute) {
+        for (int i = 0; i < MAX_THEME_REFERENCES; i++) {
+            if (!attribute.value.startsWith("?")) return attribute;
+
+            Attribute referenced = getAttribute(themeReference(attribute.value, attribute.contextPackageName));
+            if (referenced == null) return null;
+            attribute = new Attribute(attribute.resName, referenced.value, referenced.contextPackageName);
+        }
+        throw new RuntimeException("too many theme references from " + attribute);
+    }
+
+    /**
+     * Theme references may be written {@code ?android:attr/textColor}, {@code ?android:textColor}, {@code ?attr/foo}
+     * or {@code ?foo}.
+     */
+    static ResName themeReference(String value, String packageName) {
+        String name = value.substring(1);
+        int colon = name.indexOf(':');
+        String namespace = colon == -1 ? packageName : name.substring(0, colon);
+        name = name.substring(colon + 1);
+        if (name.startsWith("attr/")) name = name.substring("attr/".length());
+        return new ResName(namespace, "attr", name);
+    }
+
+    private static class Key {
+        final Style defStyle;
+        final ResourceIndex resourceIndex;
+
+        Key(Style defStyle, ResourceIndex resourceIndex) {
+            this.defStyle = defStyle;
+            this.resourceIndex = resourceIndex;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return defStyle == key.defStyle && resourceIndex == key.resourceIndex;
+        }
+
+        @Override public int hashCode() {
+            int result = System.identityHashCode(defStyle);
+            result = 31 * result + System.identityHashCode(resourceIndex);
+            return result;
+        }
+    }
+}
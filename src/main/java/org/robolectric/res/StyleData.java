@@ -0,0 +1,39 @@
+package org.robolectric.res;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A {@code <style>} as it's declared: its own items, and the style it inherits the rest from.
+ * <p/>
+ * Names are stored the way they appear in R classes, with dots replaced by underscores. See {@link Style} for a style
+ * with its parents' items folded in.
+ */
+public class StyleData implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ResName name;
+    private final ResName parent;
+    private final List<Attribute> items;
+
+    public StyleData(ResName name, ResName parent, List<Attribute> items) {
+        this.name = name;
+        this.parent = parent;
+        this.items = items;
+    }
+
+    public ResName getName() {
+        return name;
+    }
+
+    /**
+     * @return the style named by the {@code parent} attribute, or implied by a dotted name; null if there isn't one
+     */
+    public ResName getParent() {
+        return parent;
+    }
+
+    public List<Attribute> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,104 @@
+package org.robolectric.res;
+
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+class StyleResourceLoader extends StreamingXmlLoader {
+    private final ResBundle<StyleData> styleData;
+
+    public StyleResourceLoader(ResBundle<StyleData> styleData) {
+        this.styleData = styleData;
+    }
+
+    @Override protected FileHandler startFile(File xmlFile, final XmlLoader.XmlContext xmlContext) {
+        return new FileHandler() {
+            boolean inResources;
+
+            String name;
+            String parent;
+            List<Attribute> items;
+
+            String itemName;
+            StringBuilder itemValue;
+
+            List<String> names = new ArrayList<String>();
+            List<StyleData> styles = new ArrayList<StyleData>();
+
+            @Override protected void startElement(XMLStreamReader reader, int depth) {
+                if (depth == 1) {
+                    inResources = isElement(reader, "resources");
+                } else if (inResources && depth == 2 && isElement(reader, "style")) {
+                    name = reader.getAttributeValue(null, "name");
+                    parent = reader.getAttributeValue(null, "parent");
+                    items = new ArrayList<Attribute>();
+                } else if (items != null && depth == 3 && isElement(reader, "item")) {
+                    itemName = reader.getAttributeValue(null, "name");
+                    itemValue = new StringBuilder();
+                }
+            }
+
+            @Override protected void characters(XMLStreamReader reader) {
+                if (itemValue != null) {
+                    itemValue.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+            }
+
+            @Override protected void endElement(XMLStreamReader reader, int depth) {
+                if (depth == 3 && itemValue != null) {
+                    items.add(new Attribute(attrName(itemName, xmlContext.packageName), itemValue.toString().trim(), xmlContext.packageName));
+                    itemValue = null;
+                } else if (depth == 2 && items != null) {
+                    String styleName = underscored(name);
+                    ResName resName = new ResName(xmlContext.packageName, "style", styleName);
+                    names.add(styleName);
+                    styles.add(new StyleData(resName, parentName(name, parent, xmlContext.packageName), items));
+                    items = null;
+                }
+            }
+
+            @Override protected void endDocument() {
+                for (int i = 0; i < names.size(); i++) {
+                    styleData.put("style", names.get(i), styles.get(i), xmlContext);
+                }
+            }
+        };
+    }
+
+    /**
+     * Item names are attr names, optionally with a package: {@code android:textColor} or {@code textColor}.
+     */
+    static ResName attrName(String itemName, String packageName) {
+        int colon = itemName.indexOf(':');
+        return colon == -1
+                ? new ResName(packageName, "attr", itemName)
+                : new ResName(itemName.substring(0, colon), "attr", itemName.substring(colon + 1));
+    }
+
+    /**
+     * Parents may be written {@code @android:style/Theme.Light}, {@code android:Theme.Light}, {@code @style/Base} or
+     * just {@code Base}. Without a parent attribute, {@code Base.Big} inherits from {@code Base}; an empty one means
+     * no parent.
+     */
+    static ResName parentName(String name, String parent, String packageName) {
+        if (parent == null) {
+            int dot = name.lastIndexOf('.');
+            return dot == -1 ? null : new ResName(packageName, "style", underscored(name.substring(0, dot)));
+        }
+
+        parent = parent.trim();
+        if (parent.startsWith("@")) parent = parent.substring(1);
+        if (parent.length() == 0) return null;
+
+        int colon = parent.indexOf(':');
+        String namespace = colon == -1 ? packageName : parent.substring(0, colon);
+        String parentName = parent.substring(colon + 1);
+        if (parentName.startsWith("style/")) parentName = parentName.substring("style/".length());
+        return new ResName(namespace, "style", underscored(parentName));
+    }
+
+    private static String underscored(String name) {
+        return name.replace('.', '_');
+    }
+}
@@ -0,0 +1,130 @@
+package org.robolectric.res;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles styles and themes from a {@link ResourceLoader}'s {@link StyleData}.
+ * <p/>
+ * Each style's chain of parents is folded into a single {@link Style} the first time it's asked for, and themes are
+ * built from the same styles applied in the same order only once. Both are shared by everything using the same
+ * resource loader, and remembered for one set of qualifiers at a time.
+ */
+public class Styles {
+    private static final Map<ResourceLoader, QualifierMemo<Resolutions>> COMPILED = Collections.synchronizedMap(new WeakHashMap<ResourceLoader, QualifierMemo<Resolutions>>());
+    private static final Object NO_STYLE = new Object();
+
+    private final ResourceLoader resourceLoader;
+    private final QualifierMemo<Resolutions> compiled;
+
+    public static Styles forResourceLoader(ResourceLoader resourceLoader) {
+        synchronized (COMPILED) {
+            QualifierMemo<Resolutions> compiled = COMPILED.get(resourceLoader);
+            if (compiled == null) {
+                COMPILED.put(resourceLoader, compiled = new QualifierMemo<Resolutions>() {
+                    @Override protected Resolutions create(String qualifiers) {
+                        return new Resolutions();
+                    }
+                });
+            }
+            return new Styles(resourceLoader, compiled);
+        }
+    }
+
+    private Styles(ResourceLoader resourceLoader, QualifierMemo<Resolutions> compiled) {
+        this.resourceLoader = resourceLoader;
+        this.compiled = compiled;
+    }
+
+    /**
+     * @return the style with everything it inherits, or null if there's no such style
+     */
+    public Style getStyle(ResName resName, String qualifiers) {
+        return getStyle(resName, qualifiers, compiled.get(qualifiers), null);
+    }
+
+    /**
+     * @param styles the styles applied to the theme, in order
+     * @param force  for each style, whether it replaces attributes the theme already has
+     */
+    public Style getTheme(List<ResName> styles, List<Boolean> force, String qualifiers) {
+        Resolutions resolutions = compiled.get(qualifiers);
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < styles.size(); i++) {
+            key.append(styles.get(i).getFullyQualifiedName()).append(force.get(i) ? "!" : "").append(',');
+        }
+
+        Style theme = resolutions.themes.get(key.toString());
+        if (theme == null) {
+            theme = new Style(new HashMap<ResName, Attribute>());
+            for (int i = 0; i < styles.size(); i++) {
+                Style style = getStyle(styles.get(i), qualifiers, resolutions, null);
+                if (style != null) theme = theme.apply(style, force.get(i));
+            }
+            resolutions.themes.put(key.toString(), theme);
+        }
+        return theme;
+    }
+
+    /**
+     * Style references may be written {@code @android:style/Widget.Button}, {@code @style/Base} or just {@code Base}.
+     */
+    public static ResName qualifyStyleName(String reference, String packageName) {
+        return StyleResourceLoader.parentName("", reference, packageName);
+    }
+
+    private Style getStyle(ResName resName, String qualifiers, Resolutions resolutions, List<ResName> chain) {
+        Object style = resolutions.styles.get(resName);
+        if (style == null) {
+            style = compile(resName, qualifiers, resolutions, chain);
+            resolutions.styles.put(resName, style == null ? NO_STYLE : style);
+        }
+        return style == NO_STYLE ? null : (Style) style;
+    }
+
+    private Style compile(ResName resName, String qualifiers, Resolutions resolutions, List<ResName> chain) {
+        StyleData styleData = resourceLoader.getStyle(resName, qualifiers);
+        if (styleData == null) return null;
+
+        // a library's styles are merged into the app's package, but still refer to the library's own package
+        String declaredPackage = styleData.getName().namespace;
+        Map<ResName, Attribute> attributes = new HashMap<ResName, Attribute>();
+
+        ResName parentName = styleData.getParent();
+        if (parentName != null) {
+            if (chain == null) {
+                chain = new ArrayList<ResName>();
+            } else if (chain.contains(resName)) {
+                throw new RuntimeException("circular style inheritance: " + chain + " -> " + resName);
+            }
+            chain.add(resName);
+            try {
+                Style parent = getStyle(parentName, qualifiers, resolutions, chain);
+                if (parent == null && !resName.namespace.equals(declaredPackage) && parentName.namespace.equals(declaredPackage)) {
+                    parent = getStyle(parentName.withPackageName(resName.namespace), qualifiers, resolutions, chain);
+                }
+                if (parent != null) attributes.putAll(parent.attributes());
+            } finally {
+                chain.remove(chain.size() - 1);
+            }
+        }
+
+        for (Attribute item : styleData.getItems()) {
+            if (!resName.namespace.equals(declaredPackage) && item.resName.namespace.equals(declaredPackage)) {
+                item = new Attribute(item.resName.withPackageName(resName.namespace), item.value, item.contextPackageName);
+            }
+            attributes.put(item.resName, item);
+        }
+        return new Style(attributes);
+    }
+
+    private static class Resolutions {
+        final Map<ResName, Object> styles = new ConcurrentHashMap<ResName, Object>();
+        final Map<String, Style> themes = new ConcurrentHashMap<String, Style>();
+    }
+}
@@ -1,56 +1,93 @@
 package org.robolectric.res;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-class ValueResourceLoader extends XpathResourceXmlLoader {
+class ValueResourceLoader extends StreamingXmlLoader {
     private final ResBundle<String> resBundle;
     private final String attrType;
-    private final boolean arraysToo;
+    private final String arrayType;
 
     public ValueResourceLoader(ResBundle<String> resBundle, String attrType, boolean arraysToo) {
-        super("/resources/" + attrType, attrType);
         this.resBundle = resBundle;
         this.attrType = attrType;
-        this.arraysToo = arraysToo;
+        this.arrayType = arraysToo ? attrType + "-array" : null;
     }
 
     @Override
-    protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
-        super.processResourceXml(xmlFile, document, xmlContext);
-
-        if (arraysToo) {
-            XPathFactory xPathFactory = XPathFactory.newInstance();
-            XPathExpression arrayXPath = xPathFactory.newXPath().compile("/resources/" + attrType + "-array");
-            NodeList arrayNodes = (NodeList) arrayXPath.evaluate(document, XPathConstants.NODESET);
-            for (int i = 0; i < arrayNodes.getLength(); i++) {
-                Node arrayNode = arrayNodes.item(i);
-                String name = arrayNode.getAttributes().getNamedItem("name").getNodeValue();
-
-                List<String> itemStrings = new ArrayList<String>();
-                XPathExpression itemXpath = xPathFactory.newXPath().compile(".//item");
-                NodeList itemNodes = (NodeList) itemXpath.evaluate(arrayNode, XPathConstants.NODESET);
-                for (int j = 0; j < itemNodes.getLength(); j++) {
-                    Node itemNode = itemNodes.item(j);
-                    itemStrings.add(itemNode.getTextContent());
+    protected FileHandler startFile(File xmlFile, final XmlLoader.XmlContext xmlContext) {
+        return new FileHandler() {
+            boolean inResources;
+
+            String valueName;
+            StringBuilder valueText;
+
+            String arrayName;
+            List<StringBuilder> items;
+            List<StringBuilder> openItems = new ArrayList<StringBuilder>();
+
+            List<String> valueNames = new ArrayList<String>();
+            List<String> values = new ArrayList<String>();
+            List<String> arrayNames = new ArrayList<String>();
+            List<List<String>> arrays = new ArrayList<List<String>>();
+
+            @Override protected void startElement(XMLStreamReader reader, int depth) {
+                if (depth == 1) {
+                    inResources = isElement(reader, "resources");
+                } else if (!inResources) {
+                    // not a values file
+                } else if (depth == 2) {
+                    if (isElement(reader, attrType)) {
+                        valueName = reader.getAttributeValue(null, "name");
+                        valueText = new StringBuilder();
+                    } else if (arrayType != null && isElement(reader, arrayType)) {
+                        arrayName = reader.getAttributeValue(null, "name");
+                        items = new ArrayList<StringBuilder>();
+                    }
+                } else if (arrayName != null && isElement(reader, "item")) {
+                    StringBuilder itemText = new StringBuilder();
+                    items.add(itemText);
+                    openItems.add(itemText);
                 }
+            }
 
-                resBundle.putArray(attrType + "-array", name, itemStrings, xmlContext);
+            @Override protected void characters(XMLStreamReader reader) {
+                if (valueText != null) {
+                    valueText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                for (StringBuilder itemText : openItems) {
+                    itemText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
             }
-        }
-    }
 
-    @Override
-    protected void processNode(Node node, String name, XmlContext xmlContext, String attrType) throws XPathExpressionException {
-        resBundle.put(attrType, name, node.getTextContent(), xmlContext);
+            @Override protected void endElement(XMLStreamReader reader, int depth) {
+                if (depth == 2 && valueText != null) {
+                    valueNames.add(valueName);
+                    values.add(valueText.toString());
+                    valueText = null;
+                } else if (depth == 2 && arrayName != null) {
+                    List<String> itemStrings = new ArrayList<String>(items.size());
+                    for (StringBuilder itemText : items) {
+                        itemStrings.add(itemText.toString());
+                    }
+                    arrayNames.add(arrayName);
+                    arrays.add(itemStrings);
+                    arrayName = null;
+                } else if (depth > 2 && arrayName != null && isElement(reader, "item")) {
+                    openItems.remove(openItems.size() - 1);
+                }
+            }
+
+            @Override protected void endDocument() {
+                for (int i = 0; i < valueNames.size(); i++) {
+                    resBundle.put(attrType, valueNames.get(i), values.get(i), xmlContext);
+                }
+                for (int i = 0; i < arrayNames.size(); i++) {
+                    resBundle.putArray(arrayType, arrayNames.get(i), arrays.get(i), xmlContext);
+                }
+            }
+        };
     }
 }
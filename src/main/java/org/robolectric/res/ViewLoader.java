@@ -1,15 +1,11 @@
 package org.robolectric.res;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ViewLoader extends XmlLoader {
+public class ViewLoader extends StreamingXmlLoader {
     public static final String XMLNS_URI = "http://www.w3.org/2000/xmlns/";
 
     private final ResBundle<ViewNode> resBundle;
@@ -19,41 +15,50 @@ public class ViewLoader extends XmlLoader {
     }
 
     @Override
-    protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
-        ViewNode topLevelNode = new ViewNode("top-level", new ArrayList<Attribute>(), xmlContext);
-        processChildren(document.getChildNodes(), topLevelNode, xmlContext);
-        String name = xmlFile.getName().replace(".xml", "");
-        resBundle.put("layout", name, topLevelNode.getChildren().get(0), xmlContext);
-    }
+    protected FileHandler startFile(final File xmlFile, final XmlLoader.XmlContext xmlContext) {
+        final ViewNode topLevelNode = new ViewNode("top-level", new ArrayList<Attribute>(), xmlContext);
+        final List<ViewNode> openNodes = new ArrayList<ViewNode>();
+        openNodes.add(topLevelNode);
 
-    private void processChildren(NodeList childNodes, ViewNode parent, XmlContext xmlContext) {
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node node = childNodes.item(i);
-            processNode(node, parent, xmlContext);
-        }
-    }
+        return new FileHandler() {
+            int skipUntilDepth;
+
+            @Override protected void startElement(XMLStreamReader reader, int depth) {
+                if (skipUntilDepth != 0) return;
+
+                ViewNode parent = openNodes.get(openNodes.size() - 1);
+                String name = elementName(reader);
+                if (name.equals("requestFocus")) {
+                    parent.focusRequested();
+                    skipUntilDepth = depth;
+                } else {
+                    ViewNode viewNode = new ViewNode(name, attributes(reader), parent.getXmlContext());
+                    parent.addChild(viewNode);
+                    openNodes.add(viewNode);
+                }
+            }
 
-    private void processNode(Node node, ViewNode parent, XmlContext xmlContext) {
-        String name = node.getNodeName();
-        NamedNodeMap attributes = node.getAttributes();
-        List<Attribute> attrList = new ArrayList<Attribute>();
-        if (attributes != null) {
-            int length = attributes.getLength();
-            for (int i = 0; i < length; i++) {
-                Node attr = attributes.item(i);
-                if (!XMLNS_URI.equals(attr.getNamespaceURI())) {
-                    attrList.add(new Attribute(attr, xmlContext));
+            @Override protected void endElement(XMLStreamReader reader, int depth) {
+                if (skipUntilDepth == 0) {
+                    openNodes.remove(openNodes.size() - 1);
+                } else if (skipUntilDepth == depth) {
+                    skipUntilDepth = 0;
                 }
             }
-        }
 
-        if (name.equals("requestFocus")) {
-            parent.focusRequested();
-        } else if (!name.startsWith("#")) {
-            ViewNode viewNode = new ViewNode(name, attrList, parent.getXmlContext());
-            parent.addChild(viewNode);
+            @Override protected void endDocument() {
+                String name = xmlFile.getName().replace(".xml", "");
+                resBundle.put("layout", name, topLevelNode.getChildren().get(0), xmlContext);
+            }
 
-            processChildren(node.getChildNodes(), viewNode, xmlContext);
-        }
+            private List<Attribute> attributes(XMLStreamReader reader) {
+                List<Attribute> attrList = new ArrayList<Attribute>();
+                for (int i : sortedAttributeIndexes(reader)) {
+                    attrList.add(new Attribute(reader.getAttributeNamespace(i), reader.getAttributeLocalName(i),
+                            reader.getAttributeValue(i), xmlContext));
+                }
+                return attrList;
+            }
+        };
     }
 }
@@ -1,16 +1,20 @@
 package org.robolectric.res;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class ViewNode {
+public class ViewNode implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private final String name;
     private final List<Attribute> attributes;
     private final XmlLoader.XmlContext xmlContext;
 
     private final List<ViewNode> children;
     private boolean requestFocusOverride = false;
+    private transient volatile AttributeIndex attributeIndex;
 
     public ViewNode(String name, List<Attribute> attributes, XmlLoader.XmlContext xmlContext) {
         this(name, attributes, xmlContext, new ArrayList<ViewNode>(), false);
@@ -19,7 +23,8 @@ public class ViewNode {
     public ViewNode(String name, List<Attribute> attributes, XmlLoader.XmlContext xmlContext,
                     List<ViewNode> children, boolean requestFocusOverride) {
         this.name = name;
-        this.attributes = Collections.unmodifiableList(attributes);
+        // copied, so the attribute index built from it can't go stale
+        this.attributes = Collections.unmodifiableList(new ArrayList<Attribute>(attributes));
         this.xmlContext = xmlContext;
         this.children = children;
         this.requestFocusOverride = requestFocusOverride;
@@ -49,6 +54,14 @@ public class ViewNode {
         return attributes;
     }
 
+    public AttributeIndex getAttributeIndex() {
+        AttributeIndex attributeIndex = this.attributeIndex;
+        if (attributeIndex == null) {
+            this.attributeIndex = attributeIndex = new AttributeIndex(attributes);
+        }
+        return attributeIndex;
+    }
+
     @Override
     public String toString() {
         return "ViewNode{" +
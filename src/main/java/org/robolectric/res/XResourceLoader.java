@@ -4,11 +4,12 @@ import android.view.View;
 import org.w3c.dom.Document;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 abstract class XResourceLoader implements ResourceLoader {
     final AttrResourceLoader attrResourceLoader = new AttrResourceLoader();
@@ -18,6 +19,7 @@ abstract class XResourceLoader implements ResourceLoader {
     final ResBundle<String> integerData = new ResBundle<String>();
     final ResBundle<PluralResourceLoader.PluralRules> pluralsData = new ResBundle<PluralResourceLoader.PluralRules>();
     final ResBundle<String> stringData = new ResBundle<String>();
+    final ResBundle<StyleData> styleData = new ResBundle<StyleData>();
     final ResBundle<ViewNode> layoutData = new ResBundle<ViewNode>();
     final ResBundle<MenuNode> menuData = new ResBundle<MenuNode>();
     final ResBundle<DrawableNode> drawableData = new ResBundle<DrawableNode>();
@@ -25,35 +27,86 @@ abstract class XResourceLoader implements ResourceLoader {
     final ResBundle<Document> xmlDocuments = new ResBundle<Document>();
     final ResBundle<File> rawResourceFiles = new ResBundle<File>();
     private final ResourceIndex resourceIndex;
-    boolean isInitialized = false;
+    private final LazySection[] sections = new LazySection[Section.values().length];
+
+    private final BasicResolver colorResolver = new BasicResolver(colorData);
+    private final BasicResolver stringResolver = new BasicResolver(stringData);
+    private final BasicResolver dimenResolver = new BasicResolver(dimenData);
+    private final IntegerResolver integerResolver = new IntegerResolver(integerData);
+    private final BooleanResolver booleanResolver = new BooleanResolver(booleanData);
 
     protected XResourceLoader(ResourceIndex resourceIndex) {
         this.resourceIndex = resourceIndex;
+        for (Section section : Section.values()) {
+            sections[section.ordinal()] = new LazySection(section);
+        }
     }
 
-    abstract void doInitialize();
+    /**
+     * Loads the resources in one section. Called at most once per section, the first time one of its bundles is
+     * needed; different sections may be loaded on different threads at the same time.
+     */
+    abstract void doInitialize(Section section);
 
     void initialize() {
-        if (isInitialized) return;
-        doInitialize();
-        isInitialized = true;
+        for (Section section : Section.values()) {
+            initialize(section);
+        }
+    }
+
+    void initialize(Section section) {
+        sections[section.ordinal()].initialize();
+    }
 
-        makeImmutable();
+    protected void makeImmutable(Section section) {
+        for (ResBundle<?> resBundle : resBundles(section)) {
+            resBundle.makeImmutable();
+        }
+    }
+
+    ResBundle<?>[] resBundles(Section section) {
+        switch (section) {
+            case VALUES:
+                return new ResBundle<?>[] {booleanData, colorData, dimenData, integerData, pluralsData, stringData, styleData};
+            case LAYOUT:
+                return new ResBundle<?>[] {layoutData};
+            case MENU:
+                return new ResBundle<?>[] {menuData};
+            case DRAWABLE:
+                return new ResBundle<?>[] {drawableData};
+            case XML:
+                return new ResBundle<?>[] {preferenceData, xmlDocuments};
+            case RAW:
+                return new ResBundle<?>[] {rawResourceFiles};
+            default:
+                throw new IllegalArgumentException(section.toString());
+        }
     }
 
-    protected void makeImmutable() {
-        booleanData.makeImmutable();
-        colorData.makeImmutable();
-        dimenData.makeImmutable();
-        integerData.makeImmutable();
-        pluralsData.makeImmutable();
-        stringData.makeImmutable();
-        layoutData.makeImmutable();
-        menuData.makeImmutable();
-        drawableData.makeImmutable();
-        preferenceData.makeImmutable();
-        xmlDocuments.makeImmutable();
-        rawResourceFiles.makeImmutable();
+    /**
+     * Groups of resources that are loaded together. Values also covers attrs.
+     */
+    enum Section {
+        VALUES, LAYOUT, MENU, DRAWABLE, XML, RAW
+    }
+
+    private class LazySection {
+        private final Section section;
+        private volatile boolean initialized;
+
+        LazySection(Section section) {
+            this.section = section;
+        }
+
+        void initialize() {
+            if (initialized) return;
+            synchronized (this) {
+                if (initialized) return;
+                doInitialize(section);
+                makeImmutable(section);
+                initialized = true;
+            }
+        }
     }
 
     @Override
@@ -63,85 +116,86 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public String getColorValue(ResName resName, String qualifiers) {
-        initialize();
-        return new BasicResolver(colorData).resolve(resName, qualifiers);
+        initialize(Section.VALUES);
+        return colorResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public String getStringValue(ResName resName, String qualifiers) {
-        initialize();
-        return new BasicResolver(stringData).resolve(resName, qualifiers);
+        initialize(Section.VALUES);
+        return stringResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public String getPluralStringValue(ResName resName, int quantity, String qualifiers) {
-        initialize();
+        initialize(Section.VALUES);
         PluralResourceLoader.PluralRules pluralRules = pluralsData.get(resName, qualifiers);
         if (pluralRules == null) return null;
 
         PluralResourceLoader.Plural plural = pluralRules.find(quantity);
         if (plural == null) return null;
-        return new BasicResolver(stringData).resolveValue(qualifiers, plural.string, resName.namespace);
+        return stringResolver.resolveValue(qualifiers, plural.string, resName.namespace);
     }
 
     @Override
     public String getDimenValue(ResName resName, String qualifiers) {
-        initialize();
-        return new BasicResolver(dimenData).resolve(resName, qualifiers);
+        initialize(Section.VALUES);
+        return dimenResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public int getIntegerValue(ResName resName, String qualifiers) {
-        initialize();
-        return new IntegerResolver(integerData).resolve(resName, qualifiers);
+        initialize(Section.VALUES);
+        return integerResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public boolean getBooleanValue(ResName resName, String qualifiers) {
-        initialize();
-        return new BooleanResolver(booleanData).resolve(resName, qualifiers);
+        initialize(Section.VALUES);
+        return booleanResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public Document getXml(ResName resName, String qualifiers) {
-        initialize();
+        initialize(Section.XML);
         return xmlDocuments.get(resName, qualifiers);
     }
 
     @Override
     public DrawableNode getDrawableNode(ResName resName, String qualifiers) {
+        initialize(Section.DRAWABLE);
         return drawableData.get(resName, qualifiers);
     }
 
     @Override
     public InputStream getRawValue(ResName resName) {
-        initialize();
+        initialize(Section.RAW);
 
         File file = rawResourceFiles.get(resName, "");
         try {
-            return file == null ? null : new FileInputStream(file);
-        } catch (FileNotFoundException e) {
+            return file == null ? null : FileContents.open(file);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     @Override
     public String[] getStringArrayValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(Section.VALUES);
 
         if (resName == null) return null;
         resName = new ResName(resName.namespace, "string-array", resName.name); // ugh
-        List<String> strings = new BasicResolver(stringData).resolveArray(resName, qualifiers);
+        List<String> strings = stringResolver.resolveArray(resName, qualifiers);
         return strings == null ? null : strings.toArray(new String[strings.size()]);
     }
 
     @Override
     public int[] getIntegerArrayValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(Section.VALUES);
 
         if (resName == null) return null;
         resName = new ResName(resName.namespace, "integer-array", resName.name); // ugh
-        List<Integer> ints = new IntegerResolver(integerData).resolveArray(resName, qualifiers);
+        List<Integer> ints = integerResolver.resolveArray(resName, qualifiers);
         return ints == null ? null : toIntArray(ints);
     }
 
@@ -156,25 +210,32 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public PreferenceNode getPreferenceNode(ResName resName, String qualifiers) {
-        initialize();
+        initialize(Section.XML);
 
         return preferenceData.get(resName, qualifiers);
     }
 
     @Override
     public ViewNode getLayoutViewNode(ResName resName, String qualifiers) {
-        initialize();
+        initialize(Section.LAYOUT);
         if (resName == null) return null;
         return layoutData.get(resName, qualifiers);
     }
 
     @Override
     public MenuNode getMenuNode(ResName resName, String qualifiers) {
-        initialize();
+        initialize(Section.MENU);
         if (resName == null) return null;
         return menuData.get(resName, qualifiers);
     }
 
+    @Override
+    public StyleData getStyle(ResName resName, String qualifiers) {
+        initialize(Section.VALUES);
+        if (resName == null) return null;
+        return styleData.get(resName, qualifiers);
+    }
+
     @Override
     public ResourceIndex getResourceIndex() {
         return resourceIndex;
@@ -182,27 +243,53 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public boolean hasAttributeFor(Class<? extends View> viewClass, String namespace, String attribute) {
-        initialize();
+        initialize(Section.VALUES);
         return attrResourceLoader.hasAttributeFor(viewClass, namespace, attribute);
     }
 
     @Override
     public String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attribute, String part) {
-        initialize();
+        initialize(Section.VALUES);
         return attrResourceLoader.convertValueToEnum(viewClass, namespace, attribute, part);
     }
 
     abstract static class Resolver<T> {
+        private static final Object NO_VALUE = new Object();
+
         private final ResBundle<String> resBundle;
+        private final QualifierMemo<Resolutions> resolutions = new QualifierMemo<Resolutions>() {
+            @Override protected Resolutions create(String qualifiers) {
+                return new Resolutions();
+            }
+        };
 
         protected Resolver(ResBundle<String> resBundle) {
             this.resBundle = resBundle;
         }
 
         public T resolve(ResName resName, String qualifiers) {
+            return resolve(resName, qualifiers, null);
+        }
+
+        @SuppressWarnings("unchecked")
+        private T resolve(ResName resName, String qualifiers, List<ResName> chain) {
+            if (!resBundle.isImmutable()) {
+                return resolveUncached(resName, qualifiers, chain);
+            }
+
+            Resolutions resolutions = this.resolutions.get(qualifiers);
+            Object resolved = resolutions.values.get(resName);
+            if (resolved == null) {
+                resolved = resolveUncached(resName, qualifiers, chain);
+                resolutions.values.put(resName, resolved == null ? NO_VALUE : resolved);
+            }
+            return resolved == NO_VALUE ? null : (T) resolved;
+        }
+
+        private T resolveUncached(ResName resName, String qualifiers, List<ResName> chain) {
             ResBundle.Value<String> value = resBundle.getValue(resName, qualifiers);
             if (value == null) return null;
-            return resolveValue(qualifiers, value.value, value.xmlContext.packageName);
+            return resolveValue(qualifiers, value.value, value.xmlContext.packageName, chain);
         }
 
         public List<T> resolveArray(ResName resName, String qualifiers) {
@@ -217,15 +304,37 @@ abstract class XResourceLoader implements ResourceLoader {
         }
 
         T resolveValue(String qualifiers, String value, String packageName) {
+            return resolveValue(qualifiers, value, packageName, null);
+        }
+
+        private T resolveValue(String qualifiers, String value, String packageName, List<ResName> chain) {
             if (value == null) return null;
             if (value.startsWith("@")) {
-                ResName resName = new ResName(ResName.qualifyResourceName(value.substring(1), packageName));
-                return resolve(resName, qualifiers);
+                ResName resName = ResName.qualifyResName(value.substring(1), packageName);
+                if (chain == null) {
+                    chain = new ArrayList<ResName>();
+                } else if (chain.contains(resName)) {
+                    throw new RuntimeException("circular reference: " + chain + " -> " + resName);
+                }
+
+                chain.add(resName);
+                try {
+                    return resolve(resName, qualifiers, chain);
+                } finally {
+                    chain.remove(chain.size() - 1);
+                }
             } else {
                 return convert(value);
             }
         }
 
+        /**
+         * Resolved values, remembered for one set of qualifiers at a time once the bundle is fully loaded.
+         */
+        private static class Resolutions {
+            final Map<ResName, Object> values = new ConcurrentHashMap<ResName, Object>();
+        }
+
         abstract T convert(String rawValue);
     }
 
@@ -3,6 +3,7 @@ package org.robolectric.res;
 import org.w3c.dom.Document;
 
 import java.io.File;
+import java.io.Serializable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,7 +14,9 @@ public abstract class XmlLoader {
 
     protected abstract void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception;
 
-    public static class XmlContext {
+    public static class XmlContext implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         public static final Pattern DIR_QUALIFIER_PATTERN = Pattern.compile("^[^-]+(?:-(.*))?$");
 
         public final String packageName;
@@ -24,6 +27,10 @@ public abstract class XmlLoader {
             this.xmlFile = xmlFile;
         }
 
+        File getXmlFile() {
+            return xmlFile;
+        }
+
         public String getQualifiers() {
             String parentDir = xmlFile.getParentFile().getName();
             Matcher matcher = DIR_QUALIFIER_PATTERN.matcher(parentDir);
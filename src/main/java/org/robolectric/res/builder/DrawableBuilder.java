@@ -25,8 +25,12 @@ import org.w3c.dom.NodeList;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import static org.robolectric.Robolectric.shadowOf;
 
@@ -44,6 +48,9 @@ public class DrawableBuilder {
         STATE_MAP.put("android:state_window_focused", R.attr.state_window_focused);
     }
 
+    // XML drawables are only read once; they're rebuilt if asked for through a different ResourceIndex or name
+    private static final Map<DrawableNode.Xml, XmlDrawable> XML_DRAWABLES = Collections.synchronizedMap(new WeakHashMap<DrawableNode.Xml, XmlDrawable>());
+
     private final ResourceIndex resourceIndex;
 
     public DrawableBuilder(ResourceIndex resourceIndex) {
@@ -51,46 +58,12 @@ public class DrawableBuilder {
     }
 
     private Drawable getXmlDrawable(Resources resources, DrawableNode.Xml drawableNode, ResName resName) {
-        Document xmlDoc = drawableNode.document;
-        NodeList nodes = xmlDoc.getElementsByTagName("selector");
-        if (nodes != null && nodes.getLength() > 0) {
-            return buildStateListDrawable(drawableNode);
-        }
-
-        nodes = xmlDoc.getElementsByTagName("layer-list");
-        if (nodes != null && nodes.getLength() > 0) {
-            NodeList itemNodes = findNodes("/layer-list/item", xmlDoc);
-            Drawable[] layers = new Drawable[itemNodes.getLength()];
-            for (int i = 0; i < itemNodes.getLength(); i++) {
-                Node node = itemNodes.item(i);
-                layers[i] = getDrawableForNode(node, resName, resources);
-            }
-            LayerDrawable layerDrawable = new LayerDrawable(layers);
-            shadowOf(layerDrawable).setLoadedFromResourceId(resourceIndex.getResourceId(resName));
-            return layerDrawable;
-        }
-
-        nodes = xmlDoc.getElementsByTagName("animation-list");
-        if (nodes != null && nodes.getLength() > 0) {
-            AnimationDrawable animationDrawable = new AnimationDrawable();
-
-            NodeList itemNodes = findNodes("/animation-list/item", xmlDoc);
-            for (int i = 0; i < itemNodes.getLength(); i++) {
-                Node node = itemNodes.item(i);
-                Drawable frameDrawable = getDrawableForNode(node, resName, resources);
-                String duration = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "duration").getNodeValue();
-                animationDrawable.addFrame(frameDrawable, Integer.parseInt(duration));
-            }
-            return animationDrawable;
+        XmlDrawable xmlDrawable = XML_DRAWABLES.get(drawableNode);
+        if (xmlDrawable == null || xmlDrawable.resourceIndex != resourceIndex || !xmlDrawable.resName.equals(resName)) {
+            xmlDrawable = new XmlDrawable(drawableNode, resName);
+            XML_DRAWABLES.put(drawableNode, xmlDrawable);
         }
-
-        return null;
-    }
-
-    private Drawable getDrawableForNode(Node node, ResName resName, Resources resources) {
-        String drawableName = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "drawable").getNodeValue();
-        ResName otherDrawableResName = resName.qualify(drawableName);
-        return resources.getDrawable(resourceIndex.getResourceId(otherDrawableResName));
+        return xmlDrawable.newDrawable(resources);
     }
 
     private NodeList findNodes(String xpathExpression, Document xmlDoc) {
@@ -101,20 +74,10 @@ public class DrawableBuilder {
         }
     }
 
-    private StateListDrawable buildStateListDrawable(DrawableNode.Xml drawableNode) {
-        StateListDrawable drawable = new StateListDrawable();
-        ShadowStateListDrawable shDrawable = Robolectric.shadowOf(drawable);
-        NodeList items = drawableNode.document.getElementsByTagName("item");
-        for (int i = 0; i < items.getLength(); i++) {
-            Node node = items.item(i);
-            Node drawableName = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "drawable");
-            if (drawableName != null) {
-                int resId = ResName.getResourceId(resourceIndex, drawableName.getNodeValue(), drawableNode.xmlContext.packageName);
-                int stateId = getStateId(node);
-                shDrawable.addState(stateId, resId);
-            }
-        }
-        return drawable;
+    private int getDrawableId(Node node, ResName resName) {
+        String drawableName = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "drawable").getNodeValue();
+        ResName otherDrawableResName = resName.qualify(drawableName);
+        return resourceIndex.getResourceId(otherDrawableResName);
     }
 
     private int getStateId(Node node) {
@@ -157,4 +120,104 @@ public class DrawableBuilder {
     public boolean isNinePatchDrawable(DrawableNode drawableNode) {
         return drawableNode instanceof DrawableNode.ImageFile && ((DrawableNode.ImageFile) drawableNode).isNinePatch;
     }
+
+    /**
+     * What an XML drawable resource describes, read from its document once so that each request for it only has to
+     * create new drawables, much like a drawable's constant state on a device.
+     */
+    private class XmlDrawable {
+        private static final int OTHER = 0;
+        private static final int SELECTOR = 1;
+        private static final int LAYER_LIST = 2;
+        private static final int ANIMATION_LIST = 3;
+
+        final ResourceIndex resourceIndex = DrawableBuilder.this.resourceIndex;
+        final ResName resName;
+        private int kind = OTHER;
+        private int[] stateIds;
+        private int[] drawableIds;
+        private int[] durations;
+        private Integer resourceId;
+
+        XmlDrawable(DrawableNode.Xml drawableNode, ResName resName) {
+            this.resName = resName;
+            Document xmlDoc = drawableNode.document;
+            if (xmlDoc.getElementsByTagName("selector").getLength() > 0) {
+                kind = SELECTOR;
+                readStates(drawableNode);
+            } else if (xmlDoc.getElementsByTagName("layer-list").getLength() > 0) {
+                kind = LAYER_LIST;
+                NodeList itemNodes = findNodes("/layer-list/item", xmlDoc);
+                drawableIds = new int[itemNodes.getLength()];
+                for (int i = 0; i < drawableIds.length; i++) {
+                    drawableIds[i] = getDrawableId(itemNodes.item(i), resName);
+                }
+                resourceId = resourceIndex.getResourceId(resName);
+            } else if (xmlDoc.getElementsByTagName("animation-list").getLength() > 0) {
+                kind = ANIMATION_LIST;
+                NodeList itemNodes = findNodes("/animation-list/item", xmlDoc);
+                drawableIds = new int[itemNodes.getLength()];
+                durations = new int[itemNodes.getLength()];
+                for (int i = 0; i < drawableIds.length; i++) {
+                    Node node = itemNodes.item(i);
+                    drawableIds[i] = getDrawableId(node, resName);
+                    String duration = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "duration").getNodeValue();
+                    durations[i] = Integer.parseInt(duration);
+                }
+            }
+        }
+
+        private void readStates(DrawableNode.Xml drawableNode) {
+            NodeList items = drawableNode.document.getElementsByTagName("item");
+            List<Integer> states = new ArrayList<Integer>();
+            List<Integer> drawables = new ArrayList<Integer>();
+            for (int i = 0; i < items.getLength(); i++) {
+                Node node = items.item(i);
+                Node drawableName = node.getAttributes().getNamedItemNS(ResourceLoader.ANDROID_NS, "drawable");
+                if (drawableName != null) {
+                    int resId = ResName.getResourceId(resourceIndex, drawableName.getNodeValue(), drawableNode.xmlContext.packageName);
+                    drawables.add(resId);
+                    states.add(getStateId(node));
+                }
+            }
+            stateIds = toIntArray(states);
+            drawableIds = toIntArray(drawables);
+        }
+
+        Drawable newDrawable(Resources resources) {
+            switch (kind) {
+                case SELECTOR:
+                    StateListDrawable drawable = new StateListDrawable();
+                    ShadowStateListDrawable shDrawable = Robolectric.shadowOf(drawable);
+                    for (int i = 0; i < stateIds.length; i++) {
+                        shDrawable.addState(stateIds[i], drawableIds[i]);
+                    }
+                    return drawable;
+                case LAYER_LIST:
+                    Drawable[] layers = new Drawable[drawableIds.length];
+                    for (int i = 0; i < layers.length; i++) {
+                        layers[i] = resources.getDrawable(drawableIds[i]);
+                    }
+                    LayerDrawable layerDrawable = new LayerDrawable(layers);
+                    shadowOf(layerDrawable).setLoadedFromResourceId(resourceId);
+                    return layerDrawable;
+                case ANIMATION_LIST:
+                    AnimationDrawable animationDrawable = new AnimationDrawable();
+                    for (int i = 0; i < drawableIds.length; i++) {
+                        animationDrawable.addFrame(resources.getDrawable(drawableIds[i]), durations[i]);
+                    }
+                    return animationDrawable;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static int[] toIntArray(List<Integer> integers) {
+        int[] ints = new int[integers.size()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = integers.get(i);
+        }
+        return ints;
+    }
 }
@@ -19,12 +19,22 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import static org.robolectric.Robolectric.shadowOf;
 
 public class LayoutBuilder {
-    public static final ResName ATTR_LAYOUT = new ResName(":attr/layout");
+    public static final ResName ATTR_LAYOUT = new ResName(":attr/layout").intern();
+    private static final ResName ATTR_CLASS = new ResName("", "attr", "class").intern();
+    private static final ResName ATTR_ANDROID_NAME = new ResName("android", "attr", "name").intern();
+
+    // Layouts are inflated over and over, so the reflection and include merging each node needs is only done once.
+    private static final Map<ViewNode, ViewConstructor> VIEW_CONSTRUCTORS = Collections.synchronizedMap(new WeakHashMap<ViewNode, ViewConstructor>());
+    private static final Map<ViewNode, Include> INCLUDES = Collections.synchronizedMap(new WeakHashMap<ViewNode, Include>());
+    private static volatile Method onFinishInflate;
 
     private final ResourceLoader resourceLoader;
 
@@ -34,10 +44,7 @@ public class LayoutBuilder {
 
     private View doInflate(Context context, ViewNode viewNode, ViewGroup parent, String qualifiers) {
         if (viewNode.isInclude()) {
-            List<Attribute> viewNodeAttributes = viewNode.getAttributes();
-            Attribute layoutAttribute = Attribute.find(viewNodeAttributes, ATTR_LAYOUT);
-            ResName resName = new ResName(layoutAttribute.qualifiedValue());
-            return inflateView(context, resName, viewNodeAttributes, parent, qualifiers);
+            return inflateInclude(context, viewNode, parent, qualifiers);
         } else {
             View view = create(viewNode, context, parent);
 
@@ -81,10 +88,41 @@ public class LayoutBuilder {
     }
 
 
+    private View inflateInclude(Context context, ViewNode includeNode, ViewGroup parent, String qualifiers) {
+        Include include = INCLUDES.get(includeNode);
+        if (include == null) {
+            Attribute layoutAttribute = includeNode.getAttributeIndex().find(ATTR_LAYOUT);
+            include = new Include(new ResName(layoutAttribute.qualifiedValue()));
+            INCLUDES.put(includeNode, include);
+        }
+
+        ViewNode viewNode = resourceLoader.getLayoutViewNode(include.resName, qualifiers);
+        if (viewNode == null) {
+            throw new RuntimeException("Could not find layout " + include.resName.name);
+        }
+
+        ViewNode mergedNode = include.mergedNode(viewNode);
+        if (mergedNode == null) {
+            mergedNode = plusAttributes(viewNode, includeNode.getAttributes());
+            include.merged(viewNode, mergedNode);
+        }
+
+        try {
+            return doInflate(context, mergedNode, parent, qualifiers);
+        } catch (I18nException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("error inflating " + include.resName.name, e);
+        }
+    }
+
     void invokeOnFinishInflate(View view) {
         try {
-            Method onFinishInflate = View.class.getDeclaredMethod("onFinishInflate");
-            onFinishInflate.setAccessible(true);
+            if (onFinishInflate == null) {
+                Method method = View.class.getDeclaredMethod("onFinishInflate");
+                method.setAccessible(true);
+                onFinishInflate = method;
+            }
             onFinishInflate.invoke(view);
         } catch (InvocationTargetException e) {
             throw new RuntimeException(e);
@@ -115,9 +153,9 @@ public class LayoutBuilder {
 
     private FrameLayout constructFragment(ViewNode viewNode, Context context) {
         List<Attribute> attributes = viewNode.getAttributes();
-        AttributeSet attributeSet = shadowOf(context).createAttributeSet(attributes, View.class);
+        AttributeSet attributeSet = shadowOf(context).createAttributeSet(attributes, viewNode.getAttributeIndex(), View.class);
 
-        Class<? extends Fragment> clazz = loadFragmentClass(Attribute.find(attributes, "android:attr/name").value);
+        Class<? extends Fragment> clazz = loadFragmentClass(viewNode.getAttributeIndex().find(ATTR_ANDROID_NAME).value);
         Fragment fragment;
         try {
             fragment = ((Constructor<? extends Fragment>) clazz.getConstructor()).newInstance();
@@ -158,22 +196,15 @@ public class LayoutBuilder {
     }
 
     private View constructView(ViewNode viewNode, Context context) {
-        Class<? extends View> clazz = pickViewClass(viewNode);
+        ViewConstructor viewConstructor = VIEW_CONSTRUCTORS.get(viewNode);
+        Class<? extends View> clazz = viewConstructor == null ? pickViewClass(viewNode) : viewConstructor.viewClass;
         try {
-            Constructor<? extends View> constructor;
-            try {
-                RoboAttributeSet attributeSet = shadowOf(context).createAttributeSet(viewNode.getAttributes(), View.class);
-                constructor = clazz.getConstructor(Context.class, AttributeSet.class);
-                return constructor.newInstance(context, attributeSet);
-            } catch (NoSuchMethodException e) {
-                try {
-                    constructor = clazz.getConstructor(Context.class);
-                    return constructor.newInstance(context);
-                } catch (NoSuchMethodException e1) {
-                    constructor = clazz.getConstructor(Context.class, String.class);
-                    return constructor.newInstance(context, "");
-                }
+            RoboAttributeSet attributeSet = shadowOf(context).createAttributeSet(viewNode.getAttributes(), viewNode.getAttributeIndex(), View.class);
+            if (viewConstructor == null) {
+                viewConstructor = new ViewConstructor(clazz);
+                VIEW_CONSTRUCTORS.put(viewNode, viewConstructor);
             }
+            return viewConstructor.newInstance(context, attributeSet);
         } catch (InstantiationException e) {
             throw new RuntimeException("Failed to create a " + clazz.getName(), e);
         } catch (IllegalAccessException e) {
@@ -189,7 +220,7 @@ public class LayoutBuilder {
         String name = viewNode.getName();
 
         if ("view".equals(name)) {
-            Attribute attribute = Attribute.find(viewNode.getAttributes(), new ResName("", "attr", "class"));
+            Attribute attribute = viewNode.getAttributeIndex().find(ATTR_CLASS);
             if (attribute == null) throw new RuntimeException("no class attr for node " + this);
             name = attribute.value;
         }
@@ -260,4 +291,57 @@ public class LayoutBuilder {
         return new ViewNode(viewNode.getName(), newAttrs, viewNode.getXmlContext(),
                 viewNode.getChildren(), viewNode.shouldRequestFocusOverride());
     }
+
+    private static class ViewConstructor {
+        final Class<? extends View> viewClass;
+        final Constructor<? extends View> constructor;
+        final int arity;
+        final boolean takesAttributeSet;
+
+        ViewConstructor(Class<? extends View> viewClass) throws NoSuchMethodException {
+            this.viewClass = viewClass;
+            Constructor<? extends View> constructor;
+            try {
+                constructor = viewClass.getConstructor(Context.class, AttributeSet.class);
+            } catch (NoSuchMethodException e) {
+                try {
+                    constructor = viewClass.getConstructor(Context.class);
+                } catch (NoSuchMethodException e1) {
+                    constructor = viewClass.getConstructor(Context.class, String.class);
+                }
+            }
+            this.constructor = constructor;
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            arity = parameterTypes.length;
+            takesAttributeSet = arity == 2 && parameterTypes[1] == AttributeSet.class;
+        }
+
+        View newInstance(Context context, AttributeSet attributeSet) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+            if (arity == 1) return constructor.newInstance(context);
+            return constructor.newInstance(context, takesAttributeSet ? attributeSet : "");
+        }
+    }
+
+    /**
+     * An {@code <include>}'s target, and the included layout's root with the include's attributes merged in. The merge
+     * is redone if the target resolves to a different layout, e.g. under other qualifiers.
+     */
+    private static class Include {
+        final ResName resName;
+        private ViewNode viewNode;
+        private ViewNode mergedNode;
+
+        Include(ResName resName) {
+            this.resName = resName;
+        }
+
+        synchronized ViewNode mergedNode(ViewNode viewNode) {
+            return viewNode == this.viewNode ? mergedNode : null;
+        }
+
+        synchronized void merged(ViewNode viewNode, ViewNode mergedNode) {
+            this.viewNode = viewNode;
+            this.mergedNode = mergedNode;
+        }
+    }
 }
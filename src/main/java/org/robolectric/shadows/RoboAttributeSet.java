@@ -3,6 +3,7 @@ package org.robolectric.shadows;
 import android.util.AttributeSet;
 import android.view.View;
 import org.robolectric.res.Attribute;
+import org.robolectric.res.AttributeIndex;
 import org.robolectric.res.ResName;
 import org.robolectric.res.ResourceIndex;
 import org.robolectric.res.ResourceLoader;
@@ -13,9 +14,12 @@ import java.net.URLEncoder;
 import java.util.List;
 
 public class RoboAttributeSet implements AttributeSet {
+    private static final ResName STYLE_ATTR = new ResName("", "attr", "style").intern();
+
     private final List<Attribute> attributes;
     private final ResourceLoader resourceLoader;
     private Class<? extends View> viewClass;
+    private AttributeIndex attributeIndex;
 
     /**
      * Names of attributes to be validated for i18n-safe values.
@@ -28,7 +32,15 @@ public class RoboAttributeSet implements AttributeSet {
     };
 
     public RoboAttributeSet(List<Attribute> attributes, ResourceLoader resourceLoader, Class<? extends View> viewClass) {
+        this(attributes, null, resourceLoader, viewClass);
+    }
+
+    /**
+     * @param attributeIndex an index already built over {@code attributes}, or null to build one when it's needed
+     */
+    public RoboAttributeSet(List<Attribute> attributes, AttributeIndex attributeIndex, ResourceLoader resourceLoader, Class<? extends View> viewClass) {
         this.attributes = attributes;
+        this.attributeIndex = attributeIndex;
         this.resourceLoader = resourceLoader;
         this.viewClass = viewClass;
     }
@@ -39,9 +51,14 @@ public class RoboAttributeSet implements AttributeSet {
 
     public RoboAttributeSet put(Attribute attribute) {
         attributes.add(attribute);
+        attributeIndex = null;
         return this;
     }
 
+    Attribute findAttribute(int attrId) {
+        return getAttributeIndex().find(attrId, resourceLoader.getResourceIndex());
+    }
+
     @Override
     public boolean getAttributeBooleanValue(String namespace, String attribute, boolean defaultValue) {
         Attribute attr = findByName(namespace, attribute);
@@ -50,7 +67,14 @@ public class RoboAttributeSet implements AttributeSet {
 
     @Override
     public int getAttributeIntValue(String namespace, String attribute, int defaultValue) {
-        Attribute attr = findByName(namespace, attribute);
+        return intValue(findByName(namespace, attribute), namespace, attribute, defaultValue);
+    }
+
+    /**
+     * Converts {@code attr}, found some other way, as if it had been looked up by {@code namespace} and {@code
+     * attribute}.
+     */
+    int intValue(Attribute attr, String namespace, String attribute, int defaultValue) {
         if (attr == null) return defaultValue;
         String value = attr.value;
 
@@ -116,8 +140,7 @@ public class RoboAttributeSet implements AttributeSet {
 
     @Override
     public int getAttributeNameResource(int index) {
-        ResName resName = attributes.get(index).resName;
-        return resourceLoader.getResourceIndex().getResourceId(resName);
+        return getAttributeIndex().getResourceId(index, resourceLoader.getResourceIndex());
     }
 
     @Override
@@ -132,7 +155,10 @@ public class RoboAttributeSet implements AttributeSet {
 
     @Override
     public float getAttributeFloatValue(String namespace, String attribute, float defaultValue) {
-        Attribute attr = findByName(namespace, attribute);
+        return floatValue(findByName(namespace, attribute), defaultValue);
+    }
+
+    float floatValue(Attribute attr, float defaultValue) {
         return (attr != null) ? Float.valueOf(attr.value) : defaultValue;
     }
 
@@ -147,7 +173,10 @@ public class RoboAttributeSet implements AttributeSet {
     }
 
     @Override public int getAttributeResourceValue(String namespace, String attribute, int defaultValue) {
-        Attribute attr = findByName(namespace, attribute);
+        return resourceValue(findByName(namespace, attribute), defaultValue);
+    }
+
+    int resourceValue(Attribute attr, int defaultValue) {
         if (attr == null) return defaultValue;
 
         Integer resourceId = ResName.getResourceId(resourceLoader.getResourceIndex(), attr.value, attr.contextPackageName);
@@ -194,7 +223,7 @@ public class RoboAttributeSet implements AttributeSet {
     }
 
     @Override public int getStyleAttribute() {
-        Attribute styleAttribute = Attribute.find(attributes, new ResName("", "attr", "style"));
+        Attribute styleAttribute = getAttributeIndex().find(STYLE_ATTR);
         if (styleAttribute == null) {
             // Per Android specifications, return 0 if there is no style.
             return 0;
@@ -217,13 +246,7 @@ public class RoboAttributeSet implements AttributeSet {
     }
 
     private Attribute findByName(String packageName, String attrName) {
-        String namespace;
-        try {
-            namespace = URLEncoder.encode(packageName, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
-        }
-        return findByName(new ResName(namespace, "attr", attrName));
+        return findByName(new ResName(encodeNamespace(packageName), "attr", attrName));
     }
 
     private Attribute findByName(ResName resName) {
@@ -232,9 +255,33 @@ public class RoboAttributeSet implements AttributeSet {
         // canonicalize the attr name if we can, otherwise don't...
         // todo: this is awful; fix it.
         if (resourceId == null) {
-            return Attribute.find(attributes, resName);
+            return getAttributeIndex().find(resName);
         } else {
-            return Attribute.find(attributes, resourceId, resourceIndex);
+            return getAttributeIndex().find(resourceId, resourceIndex);
+        }
+    }
+
+    private AttributeIndex getAttributeIndex() {
+        // attributes may have been added to the list directly since the index was built
+        if (attributeIndex == null || attributeIndex.size() != attributes.size()) {
+            attributeIndex = new AttributeIndex(attributes);
+        }
+        return attributeIndex;
+    }
+
+    private static String encodeNamespace(String packageName) {
+        for (int i = 0; i < packageName.length(); i++) {
+            char c = packageName.charAt(i);
+            boolean unchanged = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '_' || c == '*';
+            if (!unchanged) {
+                try {
+                    return URLEncoder.encode(packageName, "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new RuntimeException(e);
+                }
+            }
         }
+        return packageName;
     }
 }
@@ -24,6 +24,7 @@ import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.res.ResourceLoader;
 import org.robolectric.tester.org.apache.http.FakeHttpLayer;
+import org.robolectric.util.BackgroundThreadPool;
 import org.robolectric.util.Scheduler;
 
 import java.util.ArrayList;
@@ -85,7 +86,8 @@ public class ShadowApplication extends ShadowContextWrapper {
     private Map<String, Intent> stickyIntents = new HashMap<String, Intent>();
     private FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
     private Looper mainLooper = ShadowLooper.myLooper();
-    private Scheduler backgroundScheduler = new Scheduler();
+    private Scheduler backgroundScheduler = new Scheduler(ShadowLooper.getVirtualClock());
+    private BackgroundThreadPool backgroundThreadPool;
     private Map<String, Map<String, Object>> sharedPreferenceMap = new HashMap<String, Map<String, Object>>();
     private ArrayList<Toast> shownToasts = new ArrayList<Toast>();
     private PowerManager.WakeLock latestWakeLock;
@@ -132,6 +134,29 @@ public class ShadowApplication extends ShadowContextWrapper {
         return backgroundScheduler;
     }
 
+    /**
+     * Runs background work, i.e. {@code AsyncTask#doInBackground()} and tasks given to a
+     * {@link org.robolectric.util.RobolectricBackgroundExecutorService}, on {@code threadCount} real threads rather
+     * than on the background scheduler. Results are still posted to the main looper's scheduler. Zero goes back to
+     * using the background scheduler.
+     */
+    public synchronized void setBackgroundThreadCount(int threadCount) {
+        if (backgroundThreadPool != null) {
+            backgroundThreadPool.shutdownNow();
+            backgroundThreadPool = null;
+        }
+        if (threadCount > 0) {
+            backgroundThreadPool = new BackgroundThreadPool(threadCount);
+        }
+    }
+
+    /**
+     * @return the real threads background work runs on, or null if it runs on the background scheduler
+     */
+    public synchronized BackgroundThreadPool getBackgroundThreadPool() {
+        return backgroundThreadPool;
+    }
+
     @Override
     @Implementation
     public Context getApplicationContext() {
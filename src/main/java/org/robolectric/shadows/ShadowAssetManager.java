@@ -4,9 +4,9 @@ import android.content.res.AssetManager;
 import org.robolectric.AndroidManifest;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
+import org.robolectric.res.FileContents;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -38,7 +38,12 @@ public final class ShadowAssetManager {
 
     @Implementation
     public final InputStream open(String fileName) throws IOException {
-        return new FileInputStream(new File(appManifest.getAssetsDirectory(), fileName));
+        return FileContents.open(new File(appManifest.getAssetsDirectory(), fileName));
+    }
+
+    @Implementation
+    public final InputStream open(String fileName, int accessMode) throws IOException {
+        return open(fileName);
     }
 
 }
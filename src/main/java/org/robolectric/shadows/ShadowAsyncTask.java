@@ -6,6 +6,7 @@ import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
+import org.robolectric.util.BackgroundThreadPool;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
@@ -22,7 +23,8 @@ public class ShadowAsyncTask<Params, Progress, Result> {
     
     private final FutureTask<Result> future;
     private final BackgroundWorker worker;
-    private AsyncTask.Status status = AsyncTask.Status.PENDING;
+    private volatile AsyncTask.Status status = AsyncTask.Status.PENDING;
+    private volatile boolean onBackgroundThread;
     
 	public ShadowAsyncTask() {
 		worker = new BackgroundWorker();
@@ -46,8 +48,16 @@ public class ShadowAsyncTask<Params, Progress, Result> {
 				} catch (InterruptedException e) {
 					// Ignore.
 				} catch (Throwable t) {
-					throw new RuntimeException("An error occured while executing doInBackground()",
+					final RuntimeException error = new RuntimeException("An error occured while executing doInBackground()",
 							t.getCause());
+					if (!onBackgroundThread) throw error;
+
+					// on a real background thread nobody would see it, so rethrow it on the main looper
+					Robolectric.getUiThreadScheduler().post(new Runnable() {
+						@Override public void run() {
+							throw error;
+						}
+					});
 				}
         	}
         };
@@ -80,11 +90,17 @@ public class ShadowAsyncTask<Params, Progress, Result> {
 
         worker.params = params;
 
-        Robolectric.getBackgroundScheduler().post(new Runnable() {
-            @Override public void run() {
-            	future.run();
-            }
-        });
+        BackgroundThreadPool backgroundThreadPool = Robolectric.getShadowApplication().getBackgroundThreadPool();
+        if (backgroundThreadPool != null) {
+            onBackgroundThread = true;
+            backgroundThreadPool.execute(future);
+        } else {
+            Robolectric.getBackgroundScheduler().post(new Runnable() {
+                @Override public void run() {
+                    future.run();
+                }
+            });
+        }
 
         return realAsyncTask;
     }
@@ -10,6 +10,7 @@ import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.res.Attribute;
+import org.robolectric.res.AttributeIndex;
 import org.robolectric.res.ResName;
 import org.robolectric.res.ResourceLoader;
 
@@ -78,11 +79,7 @@ abstract public class ShadowContext {
 
     @Implementation
     public final TypedArray obtainStyledAttributes(AttributeSet set, int[] attrs) {
-        if (set == null) {
-            return getTheme().obtainStyledAttributes(attrs);
-        }
-
-        return ShadowTypedArray.create(realContext.getResources(), set, attrs);
+        return getTheme().obtainStyledAttributes(set, attrs, 0, 0);
     }
 
     @Implementation
@@ -93,7 +90,11 @@ abstract public class ShadowContext {
     }
 
     public RoboAttributeSet createAttributeSet(List<Attribute> attributes, Class<? extends View> viewClass) {
-        RoboAttributeSet attributeSet = new RoboAttributeSet(attributes, getResourceLoader(), viewClass);
+        return createAttributeSet(attributes, null, viewClass);
+    }
+
+    public RoboAttributeSet createAttributeSet(List<Attribute> attributes, AttributeIndex attributeIndex, Class<? extends View> viewClass) {
+        RoboAttributeSet attributeSet = new RoboAttributeSet(attributes, attributeIndex, getResourceLoader(), viewClass);
         if (isStrictI18n()) {
             attributeSet.validateStrictI18n();
         }
@@ -7,10 +7,13 @@ import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
+import org.robolectric.util.Scheduler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static org.robolectric.Robolectric.shadowOf;
 
@@ -18,6 +21,10 @@ import static org.robolectric.Robolectric.shadowOf;
  * Shadow for Handler that puts posted {@link Runnable}s into a queue instead of sending them to be handled on a
  * separate thread.{@link Runnable}s that are scheduled to be executed immediately can be triggered by calling
  * {@link #idleMainLooper()}.
+ * <p/>
+ * Messages waiting to be handled are filed by {@code what}, so {@link #hasMessages(int)} doesn't look through the
+ * whole queue and {@link #removeMessages(int)} only looks at messages with that {@code what}. Removed messages are
+ * also taken off the looper's scheduler.
  * todo: add utility method to advance time and trigger execution of Runnables scheduled for a time in the future
  */
 @SuppressWarnings({"UnusedDeclaration"})
@@ -26,7 +33,7 @@ public class ShadowHandler {
     @RealObject
     private Handler realHandler;
     private Looper looper;
-    private final List<Message> messages = new ArrayList<Message>();
+    private final Map<Integer, List<QueuedMessage>> queuedMessages = new HashMap<Integer, List<QueuedMessage>>();
     private Handler.Callback callback;
 
     public void __constructor__() {
@@ -83,13 +90,7 @@ public class ShadowHandler {
 
     @Implementation
     public Message obtainMessage(int what, int arg1, int arg2, Object obj) {
-        Message message = new Message();
-        message.what = what;
-        message.arg1 = arg1;
-        message.arg2 = arg2;
-        message.obj = obj;
-        message.setTarget(realHandler);
-        return message;
+        return Message.obtain(realHandler, what, arg1, arg2, obj);
     }
 
     @Implementation
@@ -100,16 +101,7 @@ public class ShadowHandler {
     @Implementation
     public final boolean sendMessageDelayed(final Message msg, long delayMillis) {
         Robolectric.shadowOf(msg).setWhen(Robolectric.shadowOf(looper).getScheduler().getCurrentTime()+delayMillis);
-        messages.add(msg);
-        postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if (messages.contains(msg)) {
-                    messages.remove(msg);
-                    routeMessage(msg);
-                }
-            }
-        }, delayMillis);
+        postDelayed(enqueue(msg), delayMillis);
         return true;
     }
 
@@ -128,7 +120,7 @@ public class ShadowHandler {
 
     @Implementation
     public final boolean sendEmptyMessageDelayed(int what, long delayMillis) {
-        final Message msg = new Message();
+        final Message msg = Message.obtain();
         msg.what = what;
         return sendMessageDelayed(msg, delayMillis);
     }
@@ -136,16 +128,7 @@ public class ShadowHandler {
     @Implementation
     public final boolean sendMessageAtFrontOfQueue(final Message msg) {
         Robolectric.shadowOf(msg).setWhen(Robolectric.shadowOf(looper).getScheduler().getCurrentTime());
-        messages.add(0, msg);
-        postAtFrontOfQueue(new Runnable() {
-            @Override
-            public void run() {
-                if (messages.contains(msg)) {
-                    messages.remove(msg);
-                    routeMessage(msg);
-                }
-            }
-        });
+        postAtFrontOfQueue(enqueue(msg));
         return true;
     }
 
@@ -161,18 +144,16 @@ public class ShadowHandler {
 
     @Implementation
     public final boolean hasMessages(int what) {
-        for (Message message : messages) {
-            if (message.what == what) {
-                return true;
-            }
-        }
-        return false;
+        return queuedMessages.containsKey(what);
     }
 
     @Implementation
     public final boolean hasMessages(int what, Object object) {
-        for (Message message : messages) {
-            if(message.what == what && message.obj == object) {
+        List<QueuedMessage> queued = queuedMessages.get(what);
+        if (queued == null) return false;
+
+        for (QueuedMessage queuedMessage : queued) {
+            if (queuedMessage.message.obj == object) {
                 return true;
             }
         }
@@ -187,15 +168,65 @@ public class ShadowHandler {
 
     @Implementation
     public final void removeMessages(int what, Object object) {
-        for (Iterator<Message> iterator = messages.iterator(); iterator.hasNext(); ) {
-            Message message = iterator.next();
-            if (message.what == what && (object == null || object.equals(message.obj))) {
+        List<QueuedMessage> queued = queuedMessages.get(what);
+        if (queued == null) return;
+
+        Scheduler scheduler = shadowOf(looper).getScheduler();
+        for (Iterator<QueuedMessage> iterator = queued.iterator(); iterator.hasNext(); ) {
+            QueuedMessage queuedMessage = iterator.next();
+            if (object == null || object.equals(queuedMessage.message.obj)) {
                 iterator.remove();
+                scheduler.remove(queuedMessage);
             }
         }
+        if (queued.isEmpty()) queuedMessages.remove(what);
     }
 
+    private QueuedMessage enqueue(Message msg) {
+        QueuedMessage queuedMessage = new QueuedMessage(msg);
+        List<QueuedMessage> queued = queuedMessages.get(msg.what);
+        if (queued == null) queuedMessages.put(msg.what, queued = new ArrayList<QueuedMessage>());
+        queued.add(queuedMessage);
+        return queuedMessage;
+    }
 
+    /**
+     * @return false if the message had already been removed
+     */
+    private boolean dequeue(QueuedMessage queuedMessage) {
+        List<QueuedMessage> queued = queuedMessages.get(queuedMessage.what);
+        if (queued == null) return false;
+
+        for (int i = 0; i < queued.size(); i++) {
+            if (queued.get(i) == queuedMessage) {
+                queued.remove(i);
+                if (queued.isEmpty()) queuedMessages.remove(queuedMessage.what);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * What's posted to the looper for each message sent; it's filed under the message's {@code what} as it was when
+     * the message was sent.
+     */
+    private class QueuedMessage implements Runnable {
+        final Message message;
+        final int what;
+
+        QueuedMessage(Message message) {
+            this.message = message;
+            this.what = message.what;
+        }
+
+        @Override
+        public void run() {
+            if (dequeue(this)) {
+                routeMessage(message);
+            }
+        }
+    }
 
     /**
      * @deprecated use {@link #idleMainLooper()} instead
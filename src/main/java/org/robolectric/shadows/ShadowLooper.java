@@ -6,20 +6,24 @@ import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.util.Scheduler;
+import org.robolectric.util.VirtualClock;
 
 import static org.robolectric.Robolectric.shadowOf;
 
 /**
  * Shadow for {@code Looper} that enqueues posted {@link Runnable}s to be run (on this thread) later. {@code Runnable}s
  * that are scheduled to run immediately can be triggered by calling {@link #idle()}
- * todo: provide better support for advancing the clock and running queued tasks
+ * <p/>
+ * Every looper's scheduler shares one {@link VirtualClock} with the background scheduler, so
+ * {@link #idleAllLoopers(long)} runs the tasks queued on all of them in the order they're due.
  */
 
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(Looper.class)
 public class ShadowLooper {
     private static ThreadLocal<Looper> looperForThread = makeThreadLocalLoopers();
-    private Scheduler scheduler = new Scheduler();
+    private static VirtualClock virtualClock = new VirtualClock();
+    private Scheduler scheduler = new Scheduler(virtualClock);
     private Thread myThread = Thread.currentThread();
     private @RealObject Looper realObject;
 
@@ -36,6 +40,21 @@ public class ShadowLooper {
 
     public static synchronized void resetThreadLoopers() {
         looperForThread = makeThreadLocalLoopers();
+        virtualClock = new VirtualClock();
+    }
+
+    public static synchronized VirtualClock getVirtualClock() {
+        return virtualClock;
+    }
+
+    /**
+     * Advances the clock shared by all loopers and the background scheduler, running the tasks due on each of them
+     * in the order they're due.
+     *
+     * @param intervalMillis milliseconds to advance
+     */
+    public static void idleAllLoopers(long intervalMillis) {
+        getVirtualClock().advanceBy(intervalMillis);
     }
 
     @Implementation
@@ -75,6 +94,7 @@ public class ShadowLooper {
         synchronized (realObject) {
             quit = true;
             scheduler.reset();
+            virtualClock.unregister(scheduler);
             realObject.notifyAll();
         }
     }
@@ -8,8 +8,19 @@ import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Like Android's, {@link #obtain()} hands out messages that have been {@link #recycle()}d before allocating new ones,
+ * keeping up to {@value #MAX_POOL_SIZE} of them. Unlike Android, handled messages aren't recycled automatically, since
+ * tests often keep them to look at afterwards.
+ */
 @Implements(Message.class)
 public class ShadowMessage {
+    private static final int MAX_POOL_SIZE = 50;
+    private static final List<Message> pool = new ArrayList<Message>(MAX_POOL_SIZE);
+
     private Bundle data;
     private Handler target;
     private long when;
@@ -56,12 +67,15 @@ public class ShadowMessage {
 
     @Implementation
     public static Message obtain() {
+        synchronized (pool) {
+            if (!pool.isEmpty()) return pool.remove(pool.size() - 1);
+        }
         return new Message();
     }
 
     @Implementation
     public static Message obtain(Handler h) {
-        Message m = new Message();
+        Message m = obtain();
         m.setTarget(h);
         return m;
     }
@@ -97,12 +111,34 @@ public class ShadowMessage {
 
     @Implementation
     public static Message obtain(Message msg) {
-        Message m = new Message();
+        Message m = obtain();
         m.copyFrom(msg);
         m.setTarget(msg.getTarget());
         return m;
     }
 
+    @Implementation
+    public void recycle() {
+        message.what = 0;
+        message.arg1 = 0;
+        message.arg2 = 0;
+        message.obj = null;
+        message.replyTo = null;
+        data = null;
+        target = null;
+        when = 0;
+
+        synchronized (pool) {
+            if (pool.size() < MAX_POOL_SIZE) pool.add(message);
+        }
+    }
+
+    public static void reset() {
+        synchronized (pool) {
+            pool.clear();
+        }
+    }
+
     @Implementation
     public void sendToTarget() {
         target.sendMessage(message);
@@ -17,16 +17,23 @@ import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.res.Attribute;
 import org.robolectric.res.DrawableNode;
+import org.robolectric.res.QualifierMemo;
 import org.robolectric.res.ResName;
 import org.robolectric.res.ResourceIndex;
 import org.robolectric.res.ResourceLoader;
+import org.robolectric.res.Style;
+import org.robolectric.res.Styles;
 import org.robolectric.res.builder.DrawableBuilder;
 import org.robolectric.res.builder.XmlFileBuilder;
 import org.w3c.dom.Document;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.robolectric.Robolectric.newInstanceOf;
 import static org.robolectric.Robolectric.shadowOf;
@@ -49,6 +56,11 @@ public class ShadowResources {
     private ResourceLoader resourceLoader;
     private ResourceIndex resourceIndex;
     private AssetManager assetManager;
+    private final QualifierMemo<Map<Integer, Float>> dimensions = new QualifierMemo<Map<Integer, Float>>() {
+        @Override protected Map<Integer, Float> create(String qualifiers) {
+            return new ConcurrentHashMap<Integer, Float>();
+        }
+    };
 
     public static void setSystemResources(ResourceLoader systemResourceLoader) {
         AssetManager assetManager = Robolectric.newInstanceOf(AssetManager.class);
@@ -220,10 +232,18 @@ public class ShadowResources {
 
     @Implementation
     public float getDimension(int id) throws Resources.NotFoundException {
-        String dimenValue = resourceLoader.getDimenValue(getResName(id), getQualifiers());
-        if (dimenValue == null) throw new Resources.NotFoundException(notFound(id));
-//        DimensionConverter.stringToDimension(dimenValue, displayMetrics);
-        return temporaryDimenConverter(dimenValue);
+        String qualifiers = getQualifiers();
+        // views ask for the same dimensions over and over while measuring
+        Map<Integer, Float> dimensions = this.dimensions.get(qualifiers);
+        Float dimension = dimensions.get(id);
+        if (dimension == null) {
+            String dimenValue = resourceLoader.getDimenValue(getResName(id), qualifiers);
+            if (dimenValue == null) throw new Resources.NotFoundException(notFound(id));
+//            DimensionConverter.stringToDimension(dimenValue, displayMetrics);
+            dimension = temporaryDimenConverter(dimenValue);
+            dimensions.put(id, dimension);
+        }
+        return dimension;
     }
 
     private static final String[] UNITS = {"dp", "dip", "pt", "px", "sp"};
@@ -302,11 +322,31 @@ public class ShadowResources {
     @Implements(Resources.Theme.class)
     public static class ShadowTheme implements UsesResources {
         protected Resources resources;
+        private final List<ResName> appliedStyles = new ArrayList<ResName>();
+        private final List<Boolean> forcedStyles = new ArrayList<Boolean>();
 
         public void injectResources(Resources resources) {
             this.resources = resources;
         }
 
+        @Implementation
+        public void applyStyle(int resid, boolean force) {
+            ResName resName = shadowOf(resources).getResourceLoader().getResourceIndex().getResName(resid);
+            if (resName == null) return;
+
+            appliedStyles.add(resName);
+            forcedStyles.add(force);
+        }
+
+        @Implementation
+        public void setTo(Resources.Theme other) {
+            ShadowTheme otherShadowTheme = (ShadowTheme) Robolectric.shadowOf_(other);
+            appliedStyles.clear();
+            appliedStyles.addAll(otherShadowTheme.appliedStyles);
+            forcedStyles.clear();
+            forcedStyles.addAll(otherShadowTheme.forcedStyles);
+        }
+
         @Implementation
         public TypedArray obtainStyledAttributes(int[] attrs) {
             return obtainStyledAttributes(0, attrs);
@@ -314,16 +354,60 @@ public class ShadowResources {
 
         @Implementation
         public TypedArray obtainStyledAttributes(int resid, int[] attrs) throws android.content.res.Resources.NotFoundException {
-            return obtainStyledAttributes(null, attrs, 0, 0);
+            return obtainStyledAttributes(null, attrs, 0, resid);
         }
 
+        /**
+         * Values come from, in order of preference: {@code set}, the style named by its {@code style} attribute, the
+         * style the theme's {@code defStyleAttr} refers to (or {@code defStyleRes} if there isn't one), and the theme.
+         */
         @Implementation
         public TypedArray obtainStyledAttributes(AttributeSet set, int[] attrs, int defStyleAttr, int defStyleRes) {
+            ShadowResources shadowResources = shadowOf(resources);
+            ResourceLoader resourceLoader = shadowResources.getResourceLoader();
             if (set == null) {
-                set = new RoboAttributeSet(new ArrayList<Attribute>(), shadowOf(resources).getResourceLoader(), null);
+                set = new RoboAttributeSet(new ArrayList<Attribute>(), resourceLoader, null);
+            }
+            if (attrs == null || !(set instanceof RoboAttributeSet)) {
+                return ShadowTypedArray.create(resources, set, attrs);
             }
 
-            return ShadowTypedArray.create(resources, set, attrs);
+            ResourceIndex resourceIndex = resourceLoader.getResourceIndex();
+            String qualifiers = shadowResources.getQualifiers();
+            Styles styles = Styles.forResourceLoader(resourceLoader);
+            Style theme = styles.getTheme(appliedStyles, forcedStyles, qualifiers);
+
+            List<ResName> defStyleNames = new ArrayList<ResName>(2);
+            ResName defStyleName = defStyleName(theme, resourceIndex, defStyleAttr, defStyleRes);
+            if (defStyleName != null) defStyleNames.add(defStyleName);
+            ResName xmlStyleName = resourceIndex.getResName(set.getStyleAttribute());
+            if (xmlStyleName != null) defStyleNames.add(xmlStyleName);
+            Style defStyles = defStyleNames.isEmpty() ? null
+                    : styles.getTheme(defStyleNames, Collections.nCopies(defStyleNames.size(), true), qualifiers);
+
+            // the set wins over styles; theme references in it are followed, and dropped if they can't be
+            RoboAttributeSet roboAttributeSet = (RoboAttributeSet) set;
+            Attribute[] resolved = theme.resolve(attrs, defStyles, resourceIndex);
+            Attribute[] attributes = new Attribute[attrs.length];
+            for (int i = 0; i < attrs.length; i++) {
+                Attribute attribute = roboAttributeSet.findAttribute(attrs[i]);
+                if (attribute == null) {
+                    attributes[i] = resolved[i];
+                } else {
+                    attributes[i] = attribute.value.startsWith("?") ? theme.resolveThemeReference(attribute) : attribute;
+                }
+            }
+            return ShadowTypedArray.create(resources, roboAttributeSet, attrs, attributes);
+        }
+
+        private ResName defStyleName(Style theme, ResourceIndex resourceIndex, int defStyleAttr, int defStyleRes) {
+            ResName defStyleAttrName = defStyleAttr == 0 ? null : resourceIndex.getResName(defStyleAttr);
+            Attribute defStyleAttribute = defStyleAttrName == null ? null : theme.getAttribute(defStyleAttrName);
+            if (defStyleAttribute != null) defStyleAttribute = theme.resolveThemeReference(defStyleAttribute);
+            if (defStyleAttribute != null) {
+                return Styles.qualifyStyleName(defStyleAttribute.value, defStyleAttribute.contextPackageName);
+            }
+            return defStyleRes == 0 ? null : resourceIndex.getResName(defStyleRes);
         }
     }
 
@@ -2,48 +2,75 @@ package org.robolectric.shadows;
 
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Color;
 import android.util.AttributeSet;
+import android.util.TypedValue;
 import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
+import org.robolectric.res.Attribute;
 import org.robolectric.res.ResName;
 import org.robolectric.res.ResourceIndex;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-
 import static org.robolectric.Robolectric.shadowOf;
 
+/**
+ * Values are looked up in the attribute set once, when the array is populated, and kept in arrays parallel to
+ * {@code attrs}: the raw string, a {@link TypedValue} type, and the parsed number or resource id. Getters read from
+ * those; only conversions that depend on the view class (enums and flags) or that fail go back to the attribute set.
+ * <p/>
+ * Themed lookups pass in the attributes they've already found, e.g. from styles, so they aren't looked up again.
+ */
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(TypedArray.class)
 public class ShadowTypedArray implements UsesResources {
+    private static final int[] NO_INDEXES = new int[0];
+
+    private static final int INT_UNKNOWN = 0;
+    private static final int INT_CONVERTED = 1;
+    private static final int INT_UNCONVERTIBLE = 2;
+
     private Resources resources;
     private AttributeSet values;
     private int[] attrs;
-    private int[] presentAttrs;
+    private Attribute[] attributes;
     private ResourceIndex resourceIndex;
 
+    private ResName[] names;
+    private String[] strings;
+    private int[] types;
+    private int[] data;
+    private int[] presentAttrs;
+    private int[] intStates;
+    private int[] ints;
+
     public static TypedArray create(Resources resources, AttributeSet set, int[] attrs) {
         TypedArray result = ShadowResources.inject(resources, Robolectric.newInstanceOf(TypedArray.class));
         Robolectric.shadowOf(result).populate(set, attrs);
         return result;
     }
 
+    /**
+     * @param attributes parallel to {@code attrs}, the attribute found for each, or null
+     */
+    public static TypedArray create(Resources resources, RoboAttributeSet set, int[] attrs, Attribute[] attributes) {
+        TypedArray result = ShadowResources.inject(resources, Robolectric.newInstanceOf(TypedArray.class));
+        Robolectric.shadowOf(result).populate(set, attrs, attributes);
+        return result;
+    }
+
     public void injectResources(Resources resources) {
         this.resources = resources;
         resourceIndex = shadowOf(resources).getResourceLoader().getResourceIndex();
     }
 
     @Implementation
-    synchronized public int getIndexCount() {
-        if (presentAttrs == null) populatePresent();
+    public int getIndexCount() {
         return presentAttrs.length;
     }
 
     @Implementation
-    synchronized public int getIndex(int at) {
-        if (presentAttrs == null) populatePresent();
+    public int getIndex(int at) {
         return presentAttrs[at];
     }
 
@@ -54,40 +81,61 @@ public class ShadowTypedArray implements UsesResources {
 
     @Implementation
     public CharSequence getText(int index) {
-        ResName resName = getResName(index);
-        CharSequence str = values.getAttributeValue(resName.namespace, resName.name);
+        String str = strings[index];
         return str == null ? "" : str;
     }
 
     @Implementation
     public String getString(int index) {
-        ResName resName = getResName(index);
-        String str = values.getAttributeValue(resName.namespace, resName.name);
+        String str = strings[index];
         return str == null ? "" : str;
     }
 
     @Implementation
     public boolean getBoolean(int index, boolean defValue) {
-        ResName resName = getResName(index);
-        return values.getAttributeBooleanValue(resName.namespace, resName.name, defValue);
+        switch (types[index]) {
+            case TypedValue.TYPE_NULL:
+                return defValue;
+            case TypedValue.TYPE_INT_BOOLEAN:
+                return data[index] != 0;
+            default:
+                return false;
+        }
     }
 
     @Implementation
     public int getInt(int index, int defValue) {
-        ResName resName = getResName(index);
+        if (types[index] == TypedValue.TYPE_NULL) return defValue;
+        if (intStates[index] == INT_UNKNOWN) convertInt(index);
+        if (intStates[index] == INT_CONVERTED) return ints[index];
+
+        // let the attribute set warn or fail the way it always has
+        ResName resName = names[index];
+        if (attributes != null) {
+            return ((RoboAttributeSet) values).intValue(attributes[index], resName.namespace, resName.name, defValue);
+        }
         return values.getAttributeIntValue(resName.namespace, resName.name, defValue);
     }
 
     @Implementation
     public float getFloat(int index, float defValue) {
-        ResName resName = getResName(index);
-        return values.getAttributeFloatValue(resName.namespace, resName.name, defValue);
+        switch (types[index]) {
+            case TypedValue.TYPE_NULL:
+                return defValue;
+            case TypedValue.TYPE_FLOAT:
+                return Float.intBitsToFloat(data[index]);
+            case TypedValue.TYPE_INT_DEC:
+                return (float) data[index];
+            default:
+                if (attributes != null) return ((RoboAttributeSet) values).floatValue(attributes[index], defValue);
+                ResName resName = names[index];
+                return values.getAttributeFloatValue(resName.namespace, resName.name, defValue);
+        }
     }
 
     @Implementation
     public int getInteger(int index, int defValue) {
-        ResName resName = getResName(index);
-        return values.getAttributeIntValue(resName.namespace, resName.name, defValue);
+        return getInt(index, defValue);
     }
 
     @Implementation
@@ -95,16 +143,35 @@ public class ShadowTypedArray implements UsesResources {
         return defValue;
     }
 
+    @Implementation
+    public int getColor(int index, int defValue) {
+        switch (types[index]) {
+            case TypedValue.TYPE_INT_COLOR_ARGB8:
+                return data[index];
+            case TypedValue.TYPE_REFERENCE:
+                return data[index] == 0 ? defValue : resources.getColor(data[index]);
+            default:
+                return defValue;
+        }
+    }
+
     @Implementation
     public int getResourceId(int index, int defValue) {
-        ResName resName = getResName(index);
-        return values.getAttributeResourceValue(resName.namespace, resName.name, defValue);
+        switch (types[index]) {
+            case TypedValue.TYPE_NULL:
+                return defValue;
+            case TypedValue.TYPE_REFERENCE:
+                return data[index];
+            default:
+                if (attributes != null) return ((RoboAttributeSet) values).resourceValue(attributes[index], defValue);
+                ResName resName = names[index];
+                return values.getAttributeResourceValue(resName.namespace, resName.name, defValue);
+        }
     }
 
     @Implementation
     public java.lang.CharSequence[] getTextArray(int index) {
-        ResName resName = getResName(index);
-        int resourceId = values.getAttributeResourceValue(resName.namespace, resName.name, -1);
+        int resourceId = getResourceId(index, -1);
         return resourceId == -1 ? null : resources.getTextArray(resourceId);
     }
 
@@ -125,39 +192,132 @@ public class ShadowTypedArray implements UsesResources {
         return null;
     }
 
-    private ResName getResName(int index) {
-        return resourceIndex.getResName(attrs[index]);
+    public void populate(AttributeSet set, int[] attrs) {
+        populate(set, attrs, null);
     }
 
-    public void populate(AttributeSet set, int[] attrs) {
+    void populate(AttributeSet set, int[] attrs, Attribute[] attributes) {
         if (this.values != null || this.attrs != null) throw new IllegalStateException();
         this.values = set;
         this.attrs = attrs;
-    }
 
-    synchronized private void populatePresent() {
-        Set<Integer> attrsPresent = new HashSet<Integer>();
-        int count = values.getAttributeCount();
+        int count = attrs == null ? 0 : attrs.length;
+        if (attributes == null && set instanceof RoboAttributeSet) {
+            attributes = new Attribute[count];
+            for (int i = 0; i < count; i++) {
+                attributes[i] = ((RoboAttributeSet) set).findAttribute(attrs[i]);
+            }
+        }
+        this.attributes = attributes;
+        names = new ResName[count];
+        strings = new String[count];
+        types = new int[count];
+        data = new int[count];
+        intStates = new int[count];
+        ints = new int[count];
+
+        int presentCount = 0;
         for (int i = 0; i < count; i++) {
-            attrsPresent.add(values.getAttributeNameResource(i));
+            names[i] = resourceIndex.getResName(attrs[i]);
+            if (populate(i, set)) presentCount++;
         }
-        attrsPresent.retainAll(Arrays.asList(box(attrs)));
-        this.presentAttrs = new int[attrsPresent.size()];
-        int j = 0;
-        if (attrs == null) return;
-        for (int i = 0; i < attrs.length; i++) {
-            int attr = attrs[i];
-            if (attrsPresent.contains(attr)) {
-                presentAttrs[j++] = i;
+
+        presentAttrs = presentCount == 0 ? NO_INDEXES : new int[presentCount];
+        for (int i = 0, j = 0; i < count && j < presentCount; i++) {
+            if (types[i] != TypedValue.TYPE_NULL) presentAttrs[j++] = i;
+        }
+    }
+
+    private boolean populate(int index, AttributeSet set) {
+        ResName resName = names[index];
+        if (resName == null) return false;
+
+        String value;
+        Integer resourceId = null;
+        if (attributes != null) {
+            Attribute attribute = attributes[index];
+            if (attribute == null) return false;
+            value = attribute.value;
+            if (value.startsWith("@")) {
+                resourceId = ResName.getResourceId(resourceIndex, value, attribute.contextPackageName);
+            }
+        } else {
+            value = set.getAttributeValue(resName.namespace, resName.name);
+            if (value == null) return false;
+            if (value.startsWith("@")) {
+                int id = set.getAttributeResourceValue(resName.namespace, resName.name, -1);
+                if (id != -1) resourceId = id;
             }
         }
+
+        strings[index] = value;
+        if (resourceId != null) {
+            types[index] = TypedValue.TYPE_REFERENCE;
+            data[index] = resourceId;
+        } else if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            types[index] = TypedValue.TYPE_INT_BOOLEAN;
+            data[index] = "true".equalsIgnoreCase(value) ? 1 : 0;
+        } else if (value.startsWith("#")) {
+            parseColor(index, value);
+        } else if (looksNumeric(value)) {
+            parseNumber(index, value);
+        } else {
+            types[index] = TypedValue.TYPE_STRING;
+        }
+        return true;
     }
 
-    private Integer[] box(int[] ints) {
-        if (ints == null) return new Integer[0];
-        Integer[] integers = new Integer[ints.length];
-        for (int i = 0; i < ints.length; i++) integers[i] = ints[i];
-        return integers;
+    private static boolean looksNumeric(String value) {
+        if (value.length() == 0) return false;
+        char c = value.charAt(0);
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
     }
 
+    private void parseNumber(int index, String value) {
+        try {
+            if (value.startsWith("0x")) {
+                data[index] = Integer.parseInt(value.substring(2), 16);
+                types[index] = TypedValue.TYPE_INT_HEX;
+            } else {
+                data[index] = Integer.parseInt(value);
+                types[index] = TypedValue.TYPE_INT_DEC;
+            }
+            return;
+        } catch (NumberFormatException e) {
+            // not an integer
+        }
+
+        try {
+            data[index] = Float.floatToIntBits(Float.parseFloat(value));
+            types[index] = TypedValue.TYPE_FLOAT;
+        } catch (NumberFormatException e) {
+            types[index] = TypedValue.TYPE_STRING;
+        }
+    }
+
+    private void parseColor(int index, String value) {
+        try {
+            data[index] = Color.parseColor(value);
+            types[index] = TypedValue.TYPE_INT_COLOR_ARGB8;
+        } catch (IllegalArgumentException e) {
+            types[index] = TypedValue.TYPE_STRING;
+        }
+    }
+
+    /**
+     * Enums and flags depend on the view class, so ints are converted the first time they're asked for.
+     */
+    private void convertInt(int index) {
+        ResName resName = names[index];
+        if (values instanceof RoboAttributeSet && ((RoboAttributeSet) values).isEnum(resName.namespace, resName.name)) {
+            ints[index] = ((RoboAttributeSet) values).getEnumValue(resName.namespace, resName.name, strings[index]);
+            intStates[index] = INT_CONVERTED;
+        } else if (values instanceof RoboAttributeSet
+                && (types[index] == TypedValue.TYPE_INT_DEC || types[index] == TypedValue.TYPE_INT_HEX)) {
+            ints[index] = data[index];
+            intStates[index] = INT_CONVERTED;
+        } else {
+            intStates[index] = INT_UNCONVERTIBLE;
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package org.robolectric.util;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed number of real threads for background work, used instead of the background {@link Scheduler} when a test
+ * asks for it, so that CPU-heavy work can overlap. Keeps count of the work it's been given so tests can wait for all
+ * of it to finish.
+ */
+public class BackgroundThreadPool {
+    private final ExecutorService executor;
+    private int outstandingCount;
+
+    public BackgroundThreadPool(int threadCount) {
+        executor = Executors.newFixedThreadPool(threadCount,
+                new DaemonThreadFactory("robolectric-background-", BackgroundThreadPool.class.getClassLoader()));
+    }
+
+    public void execute(final Runnable runnable) {
+        synchronized (this) {
+            outstandingCount++;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        finished();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            finished();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until everything given to the pool so far, and anything that work gives it in turn, has finished.
+     */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (outstandingCount > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * @return false if the pool still wasn't idle after {@code timeout}
+     */
+    public synchronized boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (outstandingCount > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Discards work that hasn't started and interrupts work that has.
+     */
+    public void shutdownNow() {
+        List<Runnable> neverRun = executor.shutdownNow();
+        for (int i = 0; i < neverRun.size(); i++) {
+            finished();
+        }
+    }
+
+    private synchronized void finished() {
+        if (--outstandingCount == 0) notifyAll();
+    }
+}
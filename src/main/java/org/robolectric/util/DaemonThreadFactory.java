@@ -0,0 +1,31 @@
+package org.robolectric.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes numbered daemon threads for Robolectric's own pools, so they never keep the JVM alive after the tests are done.
+ * Each thread's context class loader is set explicitly, since pool threads are started from whichever thread happens to
+ * need one first.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final ClassLoader contextClassLoader;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * @param namePrefix         threads are named this followed by a number
+     * @param contextClassLoader usually the class loader of the class that owns the pool
+     */
+    public DaemonThreadFactory(String namePrefix, ClassLoader contextClassLoader) {
+        this.namePrefix = namePrefix;
+        this.contextClassLoader = contextClassLoader;
+    }
+
+    @Override public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setContextClassLoader(contextClassLoader);
+        return thread;
+    }
+}
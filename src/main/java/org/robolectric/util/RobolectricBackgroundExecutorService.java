@@ -2,91 +2,181 @@ package org.robolectric.util;
 
 import org.robolectric.Robolectric;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-public class RobolectricBackgroundExecutorService implements ExecutorService {
+/**
+ * Runs tasks on the background scheduler, or on real threads if the application has been given some with
+ * {@link org.robolectric.shadows.ShadowApplication#setBackgroundThreadCount(int)}.
+ * <p/>
+ * On the scheduler, {@code invokeAll} and {@code invokeAny} run the background tasks before returning, since nothing
+ * else would.
+ */
+public class RobolectricBackgroundExecutorService extends AbstractExecutorService {
+    private final Set<QueuedTask> queuedTasks = new LinkedHashSet<QueuedTask>();
+    private int runningCount;
+    private boolean shutdown;
+
     @Override
-    public void shutdown() {
-        throw new UnsupportedOperationException();
+    public synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
     }
 
+    /**
+     * Discards tasks that haven't started. Tasks already running are left to finish.
+     */
     @Override
     public List<Runnable> shutdownNow() {
-        throw new UnsupportedOperationException();
+        List<QueuedTask> discarded;
+        synchronized (this) {
+            shutdown = true;
+            discarded = new ArrayList<QueuedTask>(queuedTasks);
+            queuedTasks.clear();
+            notifyAll();
+        }
+
+        List<Runnable> neverRun = new ArrayList<Runnable>(discarded.size());
+        for (QueuedTask queuedTask : discarded) {
+            if (!queuedTask.onBackgroundThread) {
+                Robolectric.getBackgroundScheduler().remove(queuedTask);
+            }
+            neverRun.add(queuedTask.runnable);
+        }
+        return neverRun;
     }
 
     @Override
-    public boolean isShutdown() {
-        throw new UnsupportedOperationException();
+    public synchronized boolean isShutdown() {
+        return shutdown;
     }
 
     @Override
-    public boolean isTerminated() {
-        throw new UnsupportedOperationException();
+    public synchronized boolean isTerminated() {
+        return shutdown && queuedTasks.isEmpty() && runningCount == 0;
     }
 
     @Override
-    public boolean awaitTermination(long l, TimeUnit timeUnit) throws InterruptedException {
-        throw new UnsupportedOperationException();
+    public synchronized boolean awaitTermination(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
     }
 
     @Override
-    public <T> Future<T> submit(Callable<T> tCallable) {
-        return schedule(new FutureTask<T>(tCallable));
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables) throws InterruptedException {
+        if (onBackgroundThreads()) {
+            return super.invokeAll(callables);
+        }
+
+        List<Future<T>> futures = new ArrayList<Future<T>>(callables.size());
+        for (Callable<T> callable : callables) {
+            futures.add(submit(callable));
+        }
+        Robolectric.getBackgroundScheduler().advanceBy(0);
+        return futures;
     }
 
     @Override
-    public <T> Future<T> submit(Runnable runnable, T t) {
-        return schedule(new FutureTask<T>(runnable, t));
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables, long timeout, TimeUnit timeUnit) throws InterruptedException {
+        if (onBackgroundThreads()) {
+            return super.invokeAll(callables, timeout, timeUnit);
+        }
+        return invokeAll(callables);
     }
 
     @Override
-    public Future<?> submit(Runnable runnable) {
-        return submit(runnable, null);
-    }
-
-    private <T> Future<T> schedule(final FutureTask<T> futureTask) {
-        Robolectric.getShadowApplication().getBackgroundScheduler().post(new Runnable() {
-            @Override
-            public void run() {
-                futureTask.run();
+    public <T> T invokeAny(Collection<? extends Callable<T>> callables) throws InterruptedException, ExecutionException {
+        if (onBackgroundThreads()) {
+            return super.invokeAny(callables);
+        }
+
+        ExecutionException lastFailure = null;
+        for (Future<T> future : invokeAll(callables)) {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                lastFailure = e;
+            } catch (CancellationException e) {
+                lastFailure = new ExecutionException(e);
             }
-        });
-
-        return futureTask;
+        }
+        throw lastFailure != null ? lastFailure : new ExecutionException(new IllegalArgumentException("no tasks"));
     }
 
     @Override
-    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables) throws InterruptedException {
-        throw new UnsupportedOperationException();
+    public <T> T invokeAny(Collection<? extends Callable<T>> callables, long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (onBackgroundThreads()) {
+            return super.invokeAny(callables, timeout, timeUnit);
+        }
+        return invokeAny(callables);
     }
 
     @Override
-    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables, long l, TimeUnit timeUnit) throws InterruptedException {
-        throw new UnsupportedOperationException();
+    public void execute(Runnable runnable) {
+        BackgroundThreadPool backgroundThreadPool = Robolectric.getShadowApplication().getBackgroundThreadPool();
+        QueuedTask queuedTask = new QueuedTask(runnable, backgroundThreadPool != null);
+        synchronized (this) {
+            if (shutdown) throw new RejectedExecutionException("executor has been shut down");
+            queuedTasks.add(queuedTask);
+        }
+
+        if (backgroundThreadPool != null) {
+            try {
+                backgroundThreadPool.execute(queuedTask);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    queuedTasks.remove(queuedTask);
+                }
+                throw e;
+            }
+        } else {
+            Robolectric.getBackgroundScheduler().post(queuedTask);
+        }
     }
 
-    @Override
-    public <T> T invokeAny(Collection<? extends Callable<T>> callables) throws InterruptedException, ExecutionException {
-        throw new UnsupportedOperationException();
+    private boolean onBackgroundThreads() {
+        return Robolectric.getShadowApplication().getBackgroundThreadPool() != null;
     }
 
-    @Override
-    public <T> T invokeAny(Collection<? extends Callable<T>> callables, long l, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
-        throw new UnsupportedOperationException();
-    }
+    private class QueuedTask implements Runnable {
+        final Runnable runnable;
+        final boolean onBackgroundThread;
 
-    @Override
-    public void execute(Runnable runnable) {
-        submit(runnable);
+        QueuedTask(Runnable runnable, boolean onBackgroundThread) {
+            this.runnable = runnable;
+            this.onBackgroundThread = onBackgroundThread;
+        }
+
+        @Override
+        public void run() {
+            synchronized (RobolectricBackgroundExecutorService.this) {
+                if (!queuedTasks.remove(this)) return;
+                runningCount++;
+            }
+            try {
+                runnable.run();
+            } finally {
+                synchronized (RobolectricBackgroundExecutorService.this) {
+                    runningCount--;
+                    RobolectricBackgroundExecutorService.this.notifyAll();
+                }
+            }
+        }
     }
 }
-
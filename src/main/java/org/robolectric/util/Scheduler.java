@@ -1,16 +1,48 @@
 package org.robolectric.util;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.ListIterator;
-
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Runs posted runnables in order of scheduled time, and in the order they were posted when times are equal.
+ * Runnables posted at the front of the queue run before anything else scheduled for the same time, most recent first.
+ * <p/>
+ * Runnables wait in a binary heap, so posting and running one is O(log n). Removing a runnable doesn't touch the heap:
+ * its entries are marked dead in O(1) and skipped when they come up, and the heap is rebuilt without them if they
+ * start to outnumber the live ones.
+ * <p/>
+ * A scheduler created with a {@link VirtualClock} starts at the clock's time and can also be advanced through the
+ * clock, along with the clock's other schedulers.
+ */
 public class Scheduler {
-    private List<PostedRunnable> postedRunnables = new ArrayList<PostedRunnable>();
+    private static final int MIN_DEAD_TO_COMPACT = 64;
+
+    private PriorityQueue<PostedRunnable> postedRunnables = new PriorityQueue<PostedRunnable>();
+    private final Map<Runnable, Posts> postsByRunnable = new IdentityHashMap<Runnable, Posts>();
+    private int liveCount;
+    private long nextSequence;
+    private long nextFrontSequence = -1;
+    private long runTaskCount;
     private long currentTime = 0;
     private boolean paused = false;
     private Thread associatedThread = Thread.currentThread();
     private boolean isConstantlyIdling = false;
+    private final VirtualClock clock;
+
+    public Scheduler() {
+        this(null);
+    }
+
+    public Scheduler(VirtualClock clock) {
+        this.clock = clock;
+        if (clock != null) {
+            currentTime = clock.getCurrentTime();
+            clock.register(this);
+        }
+    }
 
     public synchronized long getCurrentTime() {
         return currentTime;
@@ -31,8 +63,7 @@ public class Scheduler {
 
     public synchronized void postDelayed(Runnable runnable, long delayMillis) {
         if ((!isConstantlyIdling && (paused || delayMillis > 0)) || Thread.currentThread() != associatedThread) {
-            postedRunnables.add(new PostedRunnable(runnable, currentTime + delayMillis));
-            Collections.sort(postedRunnables);
+            enqueue(runnable, currentTime + delayMillis, clock == null ? nextSequence++ : clock.nextSequence());
         } else {
             runnable.run();
         }
@@ -44,36 +75,35 @@ public class Scheduler {
 
     public synchronized void postAtFrontOfQueue(Runnable runnable) {
         if (paused || Thread.currentThread() != associatedThread) {
-            postedRunnables.add(0, new PostedRunnable(runnable, currentTime));
+            enqueue(runnable, currentTime, clock == null ? nextFrontSequence-- : clock.nextFrontSequence());
         } else {
             runnable.run();
         }
     }
 
     public synchronized void remove(Runnable runnable) {
-        ListIterator<PostedRunnable> iterator = postedRunnables.listIterator();
-        while (iterator.hasNext()) {
-            PostedRunnable next = iterator.next();
-            if (next.runnable == runnable) {
-                iterator.remove();
-            }
-        }
+        Posts posts = postsByRunnable.remove(runnable);
+        if (posts == null) return;
+
+        posts.removed = true;
+        liveCount -= posts.count;
+        compactIfMostlyDead();
     }
 
     public synchronized boolean advanceToLastPostedRunnable() {
-        if (enqueuedTaskCount() < 1) {
+        if (liveCount < 1) {
             return false;
         }
 
-        return advanceTo(postedRunnables.get(postedRunnables.size() - 1).scheduledTime);
+        return advanceTo(getLastScheduledTime());
     }
 
     public synchronized boolean advanceToNextPostedRunnable() {
-        if (enqueuedTaskCount() < 1) {
+        if (liveCount < 1) {
             return false;
         }
 
-        return advanceTo(postedRunnables.get(0).scheduledTime);
+        return advanceTo(peek().scheduledTime);
     }
 
     public synchronized boolean advanceBy(long intervalMs) {
@@ -82,47 +112,92 @@ public class Scheduler {
     }
 
     public synchronized boolean advanceTo(long endingTime) {
-        if (endingTime - currentTime < 0 || enqueuedTaskCount() < 1) {
-            return false;
+        return drainTo(endingTime) > 0;
+    }
+
+    /**
+     * Same as {@link #drainTo(long)}, relative to the current time.
+     */
+    public synchronized int drainBy(long intervalMs) {
+        return drainTo(currentTime + intervalMs);
+    }
+
+    /**
+     * Runs every task due by {@code endingTime} in one pass, including tasks posted along the way that are also due by
+     * then, and moves the clock to {@code endingTime}. As with {@link #advanceTo(long)}, nothing happens if
+     * {@code endingTime} is in the past or nothing is queued.
+     *
+     * @return how many tasks were run
+     */
+    public synchronized int drainTo(long endingTime) {
+        if (endingTime - currentTime < 0 || liveCount < 1) {
+            return 0;
         }
 
         int runCount = 0;
-        while (nextTaskIsScheduledBefore(endingTime)) {
-            runOneTask();
+        PostedRunnable next;
+        while ((next = peek()) != null && next.scheduledTime <= endingTime) {
+            runNext();
             ++runCount;
         }
         currentTime = endingTime;
 
-        return runCount > 0;
+        return runCount;
     }
 
     public synchronized boolean runOneTask() {
-        if (enqueuedTaskCount() < 1) {
+        if (liveCount < 1) {
             return false;
         }
 
-        PostedRunnable postedRunnable = postedRunnables.remove(0);
-        currentTime = postedRunnable.scheduledTime;
-        postedRunnable.run();
+        runNext();
         return true;
     }
 
     public synchronized boolean runTasks(int howMany) {
-        if (enqueuedTaskCount() < howMany) {
+        if (liveCount < howMany) {
             return false;
         }
 
-        while (howMany > 0) {
-            PostedRunnable postedRunnable = postedRunnables.remove(0);
-            currentTime = postedRunnable.scheduledTime;
-            postedRunnable.run();
+        while (howMany > 0 && liveCount > 0) {
+            runNext();
             howMany--;
         }
         return true;
     }
 
+    /**
+     * @return how many tasks have been run since this scheduler was created or last reset
+     */
+    public synchronized long getRunTaskCount() {
+        return runTaskCount;
+    }
+
+    /**
+     * @return the time the next queued task is scheduled for, or -1 if nothing is queued
+     */
+    public synchronized long getNextScheduledTime() {
+        PostedRunnable next = peek();
+        return next == null ? -1 : next.scheduledTime;
+    }
+
+    /**
+     * @return the latest time any queued task is scheduled for, or -1 if nothing is queued
+     */
+    public synchronized long getLastScheduledTime() {
+        if (liveCount < 1) return -1;
+
+        long lastScheduledTime = Long.MIN_VALUE;
+        for (PostedRunnable postedRunnable : postedRunnables) {
+            if (!postedRunnable.posts.removed) {
+                lastScheduledTime = Math.max(lastScheduledTime, postedRunnable.scheduledTime);
+            }
+        }
+        return lastScheduledTime;
+    }
+
     public synchronized int enqueuedTaskCount() {
-        return postedRunnables.size();
+        return liveCount;
     }
 
     public synchronized boolean areAnyRunnable() {
@@ -130,31 +205,114 @@ public class Scheduler {
     }
 
     public synchronized void reset() {
+        for (Posts posts : postsByRunnable.values()) {
+            posts.removed = true;
+        }
+        postsByRunnable.clear();
         postedRunnables.clear();
+        liveCount = 0;
+        runTaskCount = 0;
         paused = false;
         isConstantlyIdling = false;
     }
 
     public synchronized int size() {
-        return postedRunnables.size();
+        return liveCount;
     }
 
     public void idleConstantly(boolean shouldIdleConstantly) {
         isConstantlyIdling = shouldIdleConstantly;
     }
 
+    synchronized PostedRunnable peekNext() {
+        return peek();
+    }
+
+    /**
+     * Moves the clock forward to {@code time} without running anything. Only safe when nothing is queued before then.
+     */
+    synchronized void catchUpTo(long time) {
+        if (time > currentTime) currentTime = time;
+    }
+
+    private void enqueue(Runnable runnable, long scheduledTime, long sequence) {
+        Posts posts = postsByRunnable.get(runnable);
+        if (posts == null) postsByRunnable.put(runnable, posts = new Posts());
+        posts.count++;
+        liveCount++;
+        postedRunnables.add(new PostedRunnable(runnable, scheduledTime, sequence, posts));
+    }
+
+    /**
+     * @return the next live runnable, discarding any removed ones ahead of it; null if there isn't one
+     */
+    private PostedRunnable peek() {
+        PostedRunnable postedRunnable;
+        while ((postedRunnable = postedRunnables.peek()) != null && postedRunnable.posts.removed) {
+            postedRunnables.poll();
+        }
+        return postedRunnable;
+    }
+
+    private PostedRunnable poll() {
+        PostedRunnable postedRunnable = peek();
+        if (postedRunnable == null) return null;
+
+        postedRunnables.poll();
+        Posts posts = postedRunnable.posts;
+        liveCount--;
+        if (--posts.count == 0) {
+            postsByRunnable.remove(postedRunnable.runnable);
+        }
+        return postedRunnable;
+    }
+
+    private void runNext() {
+        PostedRunnable postedRunnable = poll();
+        currentTime = postedRunnable.scheduledTime;
+        runTaskCount++;
+        postedRunnable.run();
+    }
+
+    private void compactIfMostlyDead() {
+        int deadCount = postedRunnables.size() - liveCount;
+        if (deadCount < MIN_DEAD_TO_COMPACT || deadCount < liveCount) return;
+
+        List<PostedRunnable> live = new ArrayList<PostedRunnable>(liveCount);
+        for (PostedRunnable postedRunnable : postedRunnables) {
+            if (!postedRunnable.posts.removed) live.add(postedRunnable);
+        }
+        postedRunnables = new PriorityQueue<PostedRunnable>(Math.max(1, live.size()));
+        postedRunnables.addAll(live);
+    }
+
+    /**
+     * Where a runnable is posted more than once, its entries share one of these, so removing it marks them all dead.
+     */
+    private static class Posts {
+        int count;
+        boolean removed;
+    }
+
     class PostedRunnable implements Comparable<PostedRunnable> {
-        Runnable runnable;
-        long scheduledTime;
+        final Runnable runnable;
+        final long scheduledTime;
+        final long sequence;
+        final Posts posts;
 
-        PostedRunnable(Runnable runnable, long scheduledTime) {
+        PostedRunnable(Runnable runnable, long scheduledTime, long sequence, Posts posts) {
             this.runnable = runnable;
             this.scheduledTime = scheduledTime;
+            this.sequence = sequence;
+            this.posts = posts;
         }
 
         @Override
         public int compareTo(PostedRunnable postedRunnable) {
-            return (int) (scheduledTime - postedRunnable.scheduledTime);
+            if (scheduledTime != postedRunnable.scheduledTime) {
+                return scheduledTime < postedRunnable.scheduledTime ? -1 : 1;
+            }
+            return sequence < postedRunnable.sequence ? -1 : (sequence == postedRunnable.sequence ? 0 : 1);
         }
 
         public void run() {
@@ -163,6 +321,7 @@ public class Scheduler {
     }
 
     private boolean nextTaskIsScheduledBefore(long endingTime) {
-        return enqueuedTaskCount() > 0 && postedRunnables.get(0).scheduledTime <= endingTime;
+        PostedRunnable next = peek();
+        return next != null && next.scheduledTime <= endingTime;
     }
 }
@@ -45,4 +45,17 @@ public class Util {
         }
         return f;
     }
+
+    /**
+     * Where Robolectric keeps things it caches between runs: the directory named by the
+     * {@code cached.robolectric.classes.path} system property, or ./tmp.
+     */
+    public static File cacheDirectory() {
+        String classCachePath = System.getProperty("cached.robolectric.classes.path");
+        if (classCachePath == null || "".equals(classCachePath.trim())) {
+            return new File("./tmp");
+        } else {
+            return new File(classCachePath);
+        }
+    }
 }
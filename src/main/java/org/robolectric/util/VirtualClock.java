@@ -0,0 +1,118 @@
+package org.robolectric.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock shared by several {@link Scheduler}s, such as those of the main looper, {@code HandlerThread} loopers and
+ * the background scheduler, so that time can be advanced for all of them at once.
+ * <p/>
+ * Each scheduler keeps its own queue and can still be advanced on its own. Advancing the clock runs the tasks of every
+ * scheduler in a single order: by scheduled time, then in the order they were posted, whichever scheduler they were
+ * posted to. Before each task runs, every scheduler's time is moved up to the task's, so that anything it posts
+ * elsewhere is scheduled relative to the same moment.
+ */
+public class VirtualClock {
+    private final List<Scheduler> schedulers = new CopyOnWriteArrayList<Scheduler>();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong nextFrontSequence = new AtomicLong(-1);
+    private volatile long currentTime;
+
+    public long getCurrentTime() {
+        return currentTime;
+    }
+
+    /**
+     * Same as {@link #advanceTo(long)}, relative to the current time.
+     */
+    public synchronized int advanceBy(long intervalMs) {
+        return advanceTo(currentTime + intervalMs);
+    }
+
+    /**
+     * Runs every task due by {@code endingTime} on any of the clock's schedulers, including tasks posted along the
+     * way that are also due by then, and moves the clock and all its schedulers to {@code endingTime}. Nothing happens
+     * if {@code endingTime} is in the past.
+     *
+     * @return how many tasks were run
+     */
+    public synchronized int advanceTo(long endingTime) {
+        if (endingTime - currentTime < 0) {
+            return 0;
+        }
+
+        int runCount = 0;
+        Scheduler scheduler;
+        while ((scheduler = nextSchedulerDueBy(endingTime)) != null) {
+            moveTo(scheduler.getNextScheduledTime());
+            scheduler.runOneTask();
+            ++runCount;
+        }
+        moveTo(endingTime);
+
+        return runCount;
+    }
+
+    /**
+     * Same as {@link #advanceTo(long)}, to the time of the last task queued on any of the clock's schedulers.
+     */
+    public synchronized int advanceToLastPostedRunnable() {
+        long lastScheduledTime = -1;
+        for (Scheduler scheduler : schedulers) {
+            lastScheduledTime = Math.max(lastScheduledTime, scheduler.getLastScheduledTime());
+        }
+        return lastScheduledTime == -1 ? 0 : advanceTo(lastScheduledTime);
+    }
+
+    /**
+     * @return how many tasks are queued on all of the clock's schedulers
+     */
+    public int enqueuedTaskCount() {
+        int count = 0;
+        for (Scheduler scheduler : schedulers) {
+            count += scheduler.enqueuedTaskCount();
+        }
+        return count;
+    }
+
+    /**
+     * Stops advancing {@code scheduler}, e.g. once its looper has quit.
+     */
+    public void unregister(Scheduler scheduler) {
+        schedulers.remove(scheduler);
+    }
+
+    void register(Scheduler scheduler) {
+        schedulers.add(scheduler);
+    }
+
+    long nextSequence() {
+        return nextSequence.getAndIncrement();
+    }
+
+    long nextFrontSequence() {
+        return nextFrontSequence.getAndDecrement();
+    }
+
+    private Scheduler nextSchedulerDueBy(long endingTime) {
+        Scheduler nextScheduler = null;
+        Scheduler.PostedRunnable next = null;
+        for (Scheduler scheduler : schedulers) {
+            Scheduler.PostedRunnable postedRunnable = scheduler.peekNext();
+            if (postedRunnable == null || postedRunnable.scheduledTime > endingTime) continue;
+            if (next == null || postedRunnable.compareTo(next) < 0) {
+                next = postedRunnable;
+                nextScheduler = scheduler;
+            }
+        }
+        return nextScheduler;
+    }
+
+    private void moveTo(long time) {
+        if (time > currentTime) currentTime = time;
+        for (Scheduler scheduler : schedulers) {
+            scheduler.catchUpTo(time);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.robolectric.res.ResourcePath;
 import org.robolectric.test.TemporaryFolder;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -65,6 +66,15 @@ public class AndroidManifestTest {
         assertEquals(1, newConfigWith("").getMinSdkVersion());
     }
 
+    @Test
+    public void shouldRereadManifestWhenFileChanges() throws Exception {
+        File manifestFile = temporaryFolder.newFile("changing.xml", manifestWith("android:minSdkVersion=\"7\""));
+        assertEquals(7, new AndroidManifest(manifestFile, null, null).getMinSdkVersion());
+
+        writeManifestWith(manifestFile, "android:minSdkVersion=\"17\"");
+        assertEquals(17, new AndroidManifest(manifestFile, null, null).getMinSdkVersion());
+    }
+
     @Test
     public void shouldReadProcessFromAndroidManifest() throws Exception {
     	assertEquals("robolectricprocess", newConfig("TestAndroidManifestWithProcess.xml").getProcessName());
@@ -91,15 +101,27 @@ public class AndroidManifestTest {
     /////////////////////////////
 
     public AndroidManifest newConfigWith(String usesSdkAttrs) throws IOException {
-        File f = temporaryFolder.newFile("whatever.xml",
-                "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
-                        "<manifest xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
-                        "          package=\"org.robolectric\">\n" +
-                        "    <uses-sdk " + usesSdkAttrs + "/>\n" +
-                        "</manifest>\n");
+        File f = temporaryFolder.newFile("whatever.xml", manifestWith(usesSdkAttrs));
         return new AndroidManifest(f, null, null);
     }
 
+    private void writeManifestWith(File file, String usesSdkAttrs) throws IOException {
+        FileWriter fileWriter = new FileWriter(file);
+        try {
+            fileWriter.write(manifestWith(usesSdkAttrs));
+        } finally {
+            fileWriter.close();
+        }
+    }
+
+    private String manifestWith(String usesSdkAttrs) {
+        return "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                "<manifest xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "          package=\"org.robolectric\">\n" +
+                "    <uses-sdk " + usesSdkAttrs + "/>\n" +
+                "</manifest>\n";
+    }
+
     private List<String> stringify(List<ResourcePath> resourcePaths) {
         List<String> resourcePathBases = new ArrayList<String>();
         for (ResourcePath resourcePath : resourcePaths) {
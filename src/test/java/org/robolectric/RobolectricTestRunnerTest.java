@@ -1,14 +1,24 @@
 package org.robolectric;
 
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runners.model.InitializationError;
 import org.robolectric.annotation.Config;
+import org.robolectric.res.EmptyResourceLoader;
+import org.robolectric.res.ResName;
+import org.robolectric.res.ResourceLoader;
+import org.robolectric.test.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.fest.reflect.core.Reflection.method;
 
 public class RobolectricTestRunnerTest {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test public void getConfig_shouldMergeClassAndMethodConfig() throws Exception {
         assertConfig(configFor(Test1.class, "withoutAnnotation"),
                 1, 2, new Class[]{Test1.class}, "from-test");
@@ -20,6 +30,57 @@ public class RobolectricTestRunnerTest {
                 9, 8, new Class[]{Test1.class, Test2.class}, "from-method");
     }
 
+    @Test public void createAppResourceLoader_shouldOnlyReparseAppFilesThatChanged() throws Exception {
+        File projectDir = temporaryFolder.newFolder("project");
+        File layoutDir = new File(projectDir, "res/layout");
+        layoutDir.mkdirs();
+        write(new File(projectDir, "AndroidManifest.xml"), "<manifest package=\"org.robolectric\"/>");
+        File changedFile = new File(layoutDir, "changed.xml");
+        File unchangedFile = new File(layoutDir, "unchanged.xml");
+        write(changedFile, "<TextView/>");
+        write(unchangedFile, "<TextView/>");
+
+        String originalCacheDirectory = System.getProperty("cached.robolectric.classes.path");
+        System.setProperty("cached.robolectric.classes.path", temporaryFolder.newFolder("cache").getPath());
+        try {
+            assertThat(layoutName(createAppResourceLoader(projectDir), "unchanged")).isEqualTo("TextView");
+
+            write(changedFile, "<Button/>");
+            changedFile.setLastModified(changedFile.lastModified() + 2000);
+            // same size and modification time, so only a reparse would see the new view
+            long unchangedLastModified = unchangedFile.lastModified();
+            write(unchangedFile, "<EditText/>");
+            unchangedFile.setLastModified(unchangedLastModified);
+
+            ResourceLoader resourceLoader = createAppResourceLoader(projectDir);
+            assertThat(layoutName(resourceLoader, "changed")).isEqualTo("Button");
+            assertThat(layoutName(resourceLoader, "unchanged")).isEqualTo("TextView");
+        } finally {
+            if (originalCacheDirectory == null) {
+                System.clearProperty("cached.robolectric.classes.path");
+            } else {
+                System.setProperty("cached.robolectric.classes.path", originalCacheDirectory);
+            }
+        }
+    }
+
+    private ResourceLoader createAppResourceLoader(File projectDir) {
+        return RobolectricTestRunner.createAppResourceLoader(new EmptyResourceLoader(), new AndroidManifest(projectDir));
+    }
+
+    private String layoutName(ResourceLoader resourceLoader, String name) {
+        return resourceLoader.getLayoutViewNode(new ResName("org.robolectric", "layout", name), "").getName();
+    }
+
+    private void write(File file, String contents) throws Exception {
+        FileWriter fileWriter = new FileWriter(file);
+        try {
+            fileWriter.write(contents);
+        } finally {
+            fileWriter.close();
+        }
+    }
+
     private Config configFor(Class<?> testClass, String methodName) throws InitializationError {
         return new RobolectricTestRunner(testClass)
                     .getConfig(method(methodName).withParameterTypes().in(Test1.class).info());
@@ -0,0 +1,60 @@
+package org.robolectric.res;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.robolectric.test.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class AndroidSdkLocationCacheTest {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldRememberSdkDirForSameEnvironment() throws Exception {
+        File cacheFile = new File(temporaryFolder.newFolder("cache"), AndroidSdkLocationCache.CACHE_FILE_NAME);
+        File sdkDir = temporaryFolder.newFolder("sdk");
+
+        new AndroidSdkLocationCache(cacheFile, "env1").putSdkDir(sdkDir);
+
+        assertThat(new AndroidSdkLocationCache(cacheFile, "env1").getSdkDir()).isEqualTo(sdkDir);
+        assertThat(new AndroidSdkLocationCache(cacheFile, "env2").getSdkDir()).isNull();
+    }
+
+    @Test
+    public void shouldForgetSdkDirThatNoLongerExists() throws Exception {
+        File cacheFile = new File(temporaryFolder.newFolder("cache"), AndroidSdkLocationCache.CACHE_FILE_NAME);
+
+        new AndroidSdkLocationCache(cacheFile, "env").putSdkDir(new File(temporaryFolder.getRoot(), "missing"));
+
+        assertThat(new AndroidSdkLocationCache(cacheFile, "env").getSdkDir()).isNull();
+    }
+
+    @Test
+    public void shouldInvalidatePlatformsWhenPlatformsDirChanges() throws Exception {
+        File cacheFile = new File(temporaryFolder.newFolder("cache"), AndroidSdkLocationCache.CACHE_FILE_NAME);
+        File platformsDir = temporaryFolder.newFolder("platforms");
+        platformsDir.setLastModified(10000);
+
+        new AndroidSdkLocationCache(cacheFile, "env").putPlatforms(platformsDir, new String[] {"android-8", "android-16"});
+        assertThat(new AndroidSdkLocationCache(cacheFile, "env").getPlatforms(platformsDir)).containsOnly("android-8", "android-16");
+
+        platformsDir.setLastModified(20000);
+        assertThat(new AndroidSdkLocationCache(cacheFile, "env").getPlatforms(platformsDir)).isNull();
+    }
+
+    @Test
+    public void shouldReplaceCacheFileWithoutLeavingTemporaryFiles() throws Exception {
+        File cacheDir = temporaryFolder.newFolder("cache");
+        File cacheFile = new File(cacheDir, AndroidSdkLocationCache.CACHE_FILE_NAME);
+        File sdkDir = temporaryFolder.newFolder("sdk");
+        File otherSdkDir = temporaryFolder.newFolder("other-sdk");
+
+        new AndroidSdkLocationCache(cacheFile, "env").putSdkDir(sdkDir);
+        new AndroidSdkLocationCache(cacheFile, "env").putSdkDir(otherSdkDir);
+
+        assertThat(new AndroidSdkLocationCache(cacheFile, "env").getSdkDir()).isEqualTo(otherSdkDir);
+        assertThat(cacheDir.list()).containsOnly(AndroidSdkLocationCache.CACHE_FILE_NAME);
+    }
+}
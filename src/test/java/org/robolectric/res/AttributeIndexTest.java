@@ -0,0 +1,56 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+import org.robolectric.R;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.systemResources;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class AttributeIndexTest {
+    private final Attribute text = new Attribute("android:attr/text", "first", TEST_PACKAGE);
+    private final Attribute textAgain = new Attribute("android:attr/text", "second", TEST_PACKAGE);
+    private final Attribute gravity = new Attribute(TEST_PACKAGE + ":attr/gravity", "center", TEST_PACKAGE);
+    private final Attribute style = new Attribute(":attr/style", "@style/Gastropod", TEST_PACKAGE);
+
+    @Test
+    public void shouldFindAttributesByName() throws Exception {
+        AttributeIndex attributeIndex = new AttributeIndex(asList(text, gravity, textAgain, style));
+        assertThat(attributeIndex.size()).isEqualTo(4);
+        assertThat(attributeIndex.find(new ResName("android:attr/text"))).isSameAs(text);
+        assertThat(attributeIndex.find(new ResName(TEST_PACKAGE + ":attr/gravity"))).isSameAs(gravity);
+        assertThat(attributeIndex.find(new ResName(":attr/style"))).isSameAs(style);
+        assertThat(attributeIndex.find(new ResName("android:attr/gravity"))).isNull();
+    }
+
+    @Test
+    public void shouldFindAttributesByResourceId() throws Exception {
+        ResourceIndex resourceIndex = new MergedResourceIndex(
+                new ResourceExtractor(testResources()),
+                new ResourceExtractor(systemResources()));
+        AttributeIndex attributeIndex = new AttributeIndex(asList(text, gravity, textAgain, style));
+        assertThat(attributeIndex.find(android.R.attr.text, resourceIndex)).isSameAs(text);
+        assertThat(attributeIndex.find(R.attr.gravity, resourceIndex)).isSameAs(gravity);
+        assertThat(attributeIndex.find(android.R.attr.gravity, resourceIndex)).isNull();
+        assertThat(attributeIndex.getResourceId(1, resourceIndex)).isEqualTo(R.attr.gravity);
+        assertThat(new AttributeIndex(asList(new Attribute(TEST_PACKAGE + ":attr/noSuchAttr", "", TEST_PACKAGE)))
+                .getResourceId(0, resourceIndex)).isNull();
+    }
+
+    @Test
+    public void viewNodeIndexShouldMatchItsAttributesWhenTheListItWasBuiltFromChanges() throws Exception {
+        List<Attribute> attributes = new ArrayList<Attribute>(asList(text, gravity));
+        ViewNode viewNode = new ViewNode("TextView", attributes, null);
+        assertThat(viewNode.getAttributeIndex().find(new ResName(":attr/style"))).isNull();
+
+        attributes.add(style);
+        assertThat(viewNode.getAttributes()).containsExactly(text, gravity);
+        assertThat(viewNode.getAttributeIndex().size()).isEqualTo(2);
+        assertThat(viewNode.getAttributeIndex().find(new ResName(":attr/style"))).isNull();
+    }
+}
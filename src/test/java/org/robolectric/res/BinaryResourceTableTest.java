@@ -0,0 +1,121 @@
+package org.robolectric.res;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.robolectric.R;
+import org.robolectric.test.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class BinaryResourceTableTest {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldLoadSameResourcesFromTableAsFromXml() throws Exception {
+        File cacheDir = temporaryFolder.newFolder("cache");
+        PackageResourceLoader parsingLoader = new PackageResourceLoader(testResources(), new BinaryResourceTable(cacheDir, testResources()));
+        parsingLoader.initialize();
+
+        BinaryResourceTable resourceTable = new BinaryResourceTable(cacheDir, testResources());
+        assertThat(resourceTable.read("values")).isNotNull();
+        assertThat(resourceTable.read("layout")).isNotNull();
+
+        PackageResourceLoader tableLoader = new PackageResourceLoader(testResources(), resourceTable);
+        assertThat(tableLoader.getStringValue(new ResName(TEST_PACKAGE, "string", "greeting"), "")).isEqualTo("Howdy");
+        assertThat(tableLoader.getIntegerArrayValue(new ResName(TEST_PACKAGE, "array", "zero_to_four_int_array"), "")).isEqualTo(new int[] {0, 1, 2, 3, 4});
+        assertThat(tableLoader.getLayoutViewNode(new ResName(TEST_PACKAGE, "layout", "main"), "").getName()).isEqualTo("LinearLayout");
+        assertThat(tableLoader.getDrawableNode(new ResName(TEST_PACKAGE, "drawable", "rainbow"), "")).isInstanceOf(DrawableNode.Xml.class);
+        assertThat(tableLoader.getXml(new ResName(TEST_PACKAGE, "xml", "preferences"), "")).isNotNull();
+        assertThat(tableLoader.hasAttributeFor(android.view.View.class, TEST_PACKAGE, "gravity")).isFalse();
+    }
+
+    @Test
+    public void shouldUseDifferentTableWhenResourcesChange() throws Exception {
+        File cacheDir = temporaryFolder.newFolder("cache");
+        File resDir = temporaryFolder.newFolder("res");
+        File valuesDir = new File(resDir, "values");
+        valuesDir.mkdirs();
+        File stringsFile = new File(valuesDir, "strings.xml");
+        write(stringsFile, "<resources><string name=\"hello\">Hello</string></resources>");
+
+        ResourcePath resourcePath = new ResourcePath(R.class, resDir, null);
+        File originalTableDir = new BinaryResourceTable(cacheDir, resourcePath).getTableDir();
+
+        write(stringsFile, "<resources><string name=\"hello\">Bonjour</string></resources>");
+        assertThat(new BinaryResourceTable(cacheDir, resourcePath).getTableDir()).isNotEqualTo(originalTableDir);
+    }
+
+    @Test
+    public void shouldOnlyReparseFilesThatChanged() throws Exception {
+        File cacheDir = temporaryFolder.newFolder("cache");
+        File resDir = temporaryFolder.newFolder("res");
+        File valuesDir = new File(resDir, "values");
+        valuesDir.mkdirs();
+        File stringsFile = new File(valuesDir, "strings.xml");
+        File colorsFile = new File(valuesDir, "colors.xml");
+        write(stringsFile, "<resources><string name=\"hello\">Hello</string></resources>");
+        write(colorsFile, "<resources><color name=\"red\">#f00</color></resources>");
+
+        ResourcePath resourcePath = new ResourcePath(R.class, resDir, null);
+        new PackageResourceLoader(resourcePath, new BinaryResourceTable(cacheDir, resourcePath)).initialize();
+
+        write(stringsFile, "<resources><string name=\"hello\">Bonjour</string><string name=\"bye\">Au revoir</string></resources>");
+        stringsFile.setLastModified(stringsFile.lastModified() + 2000);
+        // same size and modification time, so only a reparse would see the new color
+        long colorsLastModified = colorsFile.lastModified();
+        write(colorsFile, "<resources><color name=\"red\">#0f0</color></resources>");
+        colorsFile.setLastModified(colorsLastModified);
+
+        PackageResourceLoader resourceLoader = new PackageResourceLoader(resourcePath, new BinaryResourceTable(cacheDir, resourcePath));
+        String packageName = resourcePath.getPackageName();
+        assertThat(resourceLoader.getStringValue(new ResName(packageName, "string", "hello"), "")).isEqualTo("Bonjour");
+        assertThat(resourceLoader.getStringValue(new ResName(packageName, "string", "bye"), "")).isEqualTo("Au revoir");
+        assertThat(resourceLoader.getColorValue(new ResName(packageName, "color", "red"), "")).isEqualTo("#f00");
+    }
+
+    @Test
+    public void shouldDeleteStaleDirectoriesForTheSameResources() throws Exception {
+        File cacheDir = temporaryFolder.newFolder("cache");
+        File resDir = temporaryFolder.newFolder("res");
+        File valuesDir = new File(resDir, "values");
+        valuesDir.mkdirs();
+        File stringsFile = new File(valuesDir, "strings.xml");
+        write(stringsFile, "<resources><string name=\"hello\">Hello</string></resources>");
+
+        ResourcePath resourcePath = new ResourcePath(R.class, resDir, null);
+        String packageName = resourcePath.getPackageName();
+        File otherResourcesTableDir = new BinaryResourceTable(cacheDir, testResources()).getTableDir();
+        File staleParsedFilesDir = new File(cacheDir, "parsed-" + packageName + "-stale");
+        staleParsedFilesDir.mkdirs();
+        write(new File(staleParsedFilesDir, BinaryResourceTable.SOURCE_FILE_NAME), resDir.getAbsolutePath());
+        write(new File(staleParsedFilesDir, "values.bin"), "");
+        new PackageResourceLoader(testResources(), new BinaryResourceTable(cacheDir, testResources())).initialize();
+        new PackageResourceLoader(resourcePath, new BinaryResourceTable(cacheDir, resourcePath)).initialize();
+        File originalTableDir = new BinaryResourceTable(cacheDir, resourcePath).getTableDir();
+        assertThat(originalTableDir).exists();
+        assertThat(staleParsedFilesDir).doesNotExist();
+
+        write(stringsFile, "<resources><string name=\"hello\">Bonjour</string></resources>");
+        stringsFile.setLastModified(stringsFile.lastModified() + 2000);
+        BinaryResourceTable resourceTable = new BinaryResourceTable(cacheDir, resourcePath);
+        new PackageResourceLoader(resourcePath, resourceTable).initialize();
+        assertThat(resourceTable.getTableDir()).exists();
+        assertThat(originalTableDir).doesNotExist();
+        assertThat(resourceTable.getParsedFilesDir()).exists();
+        assertThat(otherResourcesTableDir).exists();
+    }
+
+    private void write(File file, String contents) throws Exception {
+        FileWriter fileWriter = new FileWriter(file);
+        try {
+            fileWriter.write(contents);
+        } finally {
+            fileWriter.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.systemResources;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class DocumentLoaderTest {
+    private static final ResourcePath[] RESOURCE_PATHS = {testResources(), systemResources()};
+
+    @Test
+    public void shouldLoadDirectoriesConcurrentlyWithTheSameResultsAsSerially() throws Exception {
+        // ResNames are interned weakly, and whether a name is shared changes the serialized bytes, so a first load is
+        // kept until the end so every later load gets the same instances
+        List<Serializable[]> firstLoads = new ArrayList<Serializable[]>();
+        List<byte[]> serialResults = new ArrayList<byte[]>();
+        for (ResourcePath resourcePath : RESOURCE_PATHS) {
+            firstLoads.add(load(resourcePath, 1));
+            serialResults.add(serialize(load(resourcePath, 1)));
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(RESOURCE_PATHS.length * 2);
+        try {
+            List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+            for (int i = 0; i < 2; i++) {
+                for (final ResourcePath resourcePath : RESOURCE_PATHS) {
+                    futures.add(executorService.submit(new Callable<byte[]>() {
+                        @Override public byte[] call() throws Exception {
+                            return serialize(load(resourcePath, 4));
+                        }
+                    }));
+                }
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertThat(futures.get(i).get()).isEqualTo(serialResults.get(i % RESOURCE_PATHS.length));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertThat(firstLoads).hasSize(RESOURCE_PATHS.length);
+    }
+
+    /**
+     * Loads strings, layouts and xml files, which between them take both the streaming and the DOM path.
+     */
+    private static Serializable[] load(ResourcePath resourcePath, int parallelism) throws Exception {
+        ResBundle<String> strings = new ResBundle<String>();
+        ResBundle<ViewNode> layouts = new ResBundle<ViewNode>();
+        ResBundle<Document> xmlDocuments = new ResBundle<Document>();
+
+        DocumentLoader valuesLoader = new DocumentLoader(new ValueResourceLoader(strings, "string", true));
+        valuesLoader.setParallelism(parallelism);
+        valuesLoader.loadResourceXmlSubDirs(resourcePath, "values");
+
+        DocumentLoader layoutLoader = new DocumentLoader(new ViewLoader(layouts));
+        layoutLoader.setParallelism(parallelism);
+        layoutLoader.loadResourceXmlSubDirs(resourcePath, "layout");
+
+        DocumentLoader xmlLoader = new DocumentLoader(new XmlFileLoader(xmlDocuments));
+        xmlLoader.setParallelism(parallelism);
+        xmlLoader.loadResourceXmlSubDirs(resourcePath, "xml");
+
+        return new Serializable[] {strings, layouts, xmlDocuments};
+    }
+
+    private static byte[] serialize(Serializable... objects) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for (Serializable object : objects) {
+            out.writeObject(object);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package org.robolectric.res;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.robolectric.test.TemporaryFolder;
+import org.robolectric.util.Strings;
+import org.robolectric.util.Util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.resourceFile;
+
+public class FileContentsTest {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldOpenFiles() throws Exception {
+        assertThat(Strings.fromStream(FileContents.open(resourceFile("assets", "docs", "extra", "testing", "hello.txt"))))
+                .isEqualTo("hello!");
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void shouldFailToOpenMissingFiles() throws Exception {
+        FileContents.open(resourceFile("assets", "bogus.file"));
+    }
+
+    @Test
+    public void shouldServeLargeFilesFromOneMapping() throws Exception {
+        File file = temporaryFolder.newFile("big.db");
+        byte[] contents = new byte[FileContents.SMALL_FILE_SIZE * 2 + 1];
+        for (int i = 0; i < contents.length; i++) contents[i] = (byte) i;
+        write(file, contents);
+
+        InputStream first = FileContents.open(file);
+        InputStream second = FileContents.open(file);
+        assertThat(first.skip(10)).isEqualTo(10);
+        assertThat(first.read()).isEqualTo(10);
+        assertThat(Util.readBytes(second)).isEqualTo(contents);
+    }
+
+    @Test
+    public void shouldReadFilesAgainWhenTheyChange() throws Exception {
+        File file = temporaryFolder.newFile("fixture.json");
+        write(file, "{}".getBytes("UTF-8"));
+        assertThat(Strings.fromStream(FileContents.open(file))).isEqualTo("{}");
+
+        write(file, "{\"a\": 1}".getBytes("UTF-8"));
+        assertThat(Strings.fromStream(FileContents.open(file))).isEqualTo("{\"a\": 1}");
+    }
+
+    @Test
+    public void shouldKeepABoundedNumberOfFiles() throws Exception {
+        File dir = temporaryFolder.newFolder("assets");
+        for (int i = 0; i < FileContents.MAX_ENTRIES + 10; i++) {
+            File file = new File(dir, i + ".txt");
+            write(file, String.valueOf(i).getBytes("UTF-8"));
+            FileContents.open(file).close();
+        }
+
+        assertThat(FileContents.size()).isEqualTo(FileContents.MAX_ENTRIES);
+        assertThat(Strings.fromStream(FileContents.open(new File(dir, "0.txt")))).isEqualTo("0");
+    }
+
+    private static void write(File file, byte[] contents) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.robolectric.res;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.util.CustomView;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.lib1Resources;
+import static org.robolectric.util.TestUtil.lib2Resources;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class OverlayResourceLoaderTest {
+    private OverlayResourceLoader resourceLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        resourceLoader = new OverlayResourceLoader(TEST_PACKAGE, asList(
+                new PackageResourceLoader(testResources()),
+                new PackageResourceLoader(lib1Resources()),
+                new PackageResourceLoader(lib2Resources())));
+    }
+
+    @Test
+    public void shouldPreferAppResourcesOverLibraryResources() throws Exception {
+        assertThat(resourceLoader.getStringValue(new ResName(TEST_PACKAGE, "string", "in_main_and_lib1"), "")).isEqualTo("from main");
+        assertThat(resourceLoader.getStringValue(new ResName(TEST_PACKAGE, "string", "only_in_lib1"), "")).isEqualTo("from lib1");
+        assertThat(resourceLoader.getStringValue(new ResName(TEST_PACKAGE, "string", "only_in_lib2"), "")).isEqualTo("from lib2");
+    }
+
+    @Test
+    public void shouldAnswerAttrQueriesFromMergedAttrs() throws Exception {
+        assertThat(resourceLoader.hasAttributeFor(CustomView.class, TEST_PACKAGE, "itemType")).isTrue();
+        assertThat(resourceLoader.hasAttributeFor(CustomView.class, TEST_PACKAGE, "otherItemType")).isFalse();
+        assertThat(resourceLoader.convertValueToEnum(CustomView.class, TEST_PACKAGE, "itemType", "ungulate")).isEqualTo("1");
+    }
+}
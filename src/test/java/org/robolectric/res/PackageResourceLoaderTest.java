@@ -0,0 +1,22 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class PackageResourceLoaderTest {
+    @Test
+    public void shouldOnlyLoadTheSectionsThatAreUsed() throws Exception {
+        PackageResourceLoader resourceLoader = new PackageResourceLoader(testResources());
+        assertThat(resourceLoader.getStringValue(new ResName(TEST_PACKAGE, "string", "greeting"), "")).isEqualTo("Howdy");
+        assertThat(resourceLoader.stringData.isImmutable()).isTrue();
+        assertThat(resourceLoader.layoutData.isImmutable()).isFalse();
+        assertThat(resourceLoader.layoutData.size()).isEqualTo(0);
+
+        assertThat(resourceLoader.getLayoutViewNode(new ResName(TEST_PACKAGE, "layout", "main"), "").getName()).isEqualTo("LinearLayout");
+        assertThat(resourceLoader.layoutData.isImmutable()).isTrue();
+        assertThat(resourceLoader.menuData.isImmutable()).isFalse();
+    }
+}
@@ -0,0 +1,35 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class QualifierMemoTest {
+    private final List<String> created = new ArrayList<String>();
+    private final QualifierMemo<List<String>> memo = new QualifierMemo<List<String>>() {
+        @Override protected List<String> create(String qualifiers) {
+            created.add(qualifiers);
+            return new ArrayList<String>();
+        }
+    };
+
+    @Test
+    public void shouldRememberValueForSameQualifiers() throws Exception {
+        List<String> value = memo.get("land");
+        assertThat(memo.get(new String("land"))).isSameAs(value);
+        assertThat(created).containsExactly("land");
+    }
+
+    @Test
+    public void shouldStartOverWhenQualifiersChange() throws Exception {
+        List<String> landValue = memo.get("land");
+        landValue.add("remembered");
+
+        assertThat(memo.get("port")).isEmpty();
+        assertThat(memo.get("land")).isNotSameAs(landValue).isEmpty();
+        assertThat(created).containsExactly("land", "port", "land");
+    }
+}
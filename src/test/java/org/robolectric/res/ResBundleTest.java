@@ -2,7 +2,10 @@ package org.robolectric.res;
 
 import org.junit.Test;
 
+import java.io.File;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class ResBundleTest {
     @Test
@@ -17,6 +20,33 @@ public class ResBundleTest {
                 "port-notouch-12key"), "en-GB-port-hdpi-notouch-12key").value);
     }
 
+    @Test
+    public void shouldPickAgainWhenQualifiersChange() throws Exception {
+        ResBundle<String> resBundle = new ResBundle<String>();
+        resBundle.put("string", "greeting", "Howdy", new XmlLoader.XmlContext("pkg", new File("res/values/strings.xml")));
+        resBundle.put("string", "greeting", "Bonjour", new XmlLoader.XmlContext("pkg", new File("res/values-fr/strings.xml")));
+        resBundle.makeImmutable();
+
+        ResName greeting = new ResName("pkg", "string", "greeting");
+        assertEquals("Howdy", resBundle.get(greeting, "en-port"));
+        assertEquals("Bonjour", resBundle.get(greeting, "fr-port"));
+        assertEquals("Howdy", resBundle.get(greeting, "en-port"));
+        assertNull(resBundle.get(new ResName("pkg", "string", "missing"), "en-port"));
+    }
+
+    @Test
+    public void shouldSortValuesAddedOutOfOrder() throws Exception {
+        ResBundle<String> resBundle = new ResBundle<String>();
+        resBundle.put("string", "greeting", "Bonjour", new XmlLoader.XmlContext("pkg", new File("res/values-fr/strings.xml")));
+        resBundle.put("string", "greeting", "Howdy", new XmlLoader.XmlContext("pkg", new File("res/values/strings.xml")));
+
+        ResName greeting = new ResName("pkg", "string", "greeting");
+        assertEquals("Howdy", resBundle.get(greeting, "en"));
+        resBundle.makeImmutable();
+        assertEquals("Howdy", resBundle.get(greeting, "en"));
+        assertEquals("Bonjour", resBundle.get(greeting, "fr"));
+    }
+
     private ResBundle.Values<String> asValues(String... qualifierses) {
         ResBundle.Values<String> values = new ResBundle.Values<String>();
         for (String qualifiers : qualifierses) {
@@ -0,0 +1,36 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ResNameTest {
+    @Test
+    public void shouldParseFullyQualifiedNames() throws Exception {
+        ResName resName = new ResName("some.package:string/some/name");
+        assertThat(resName.namespace).isEqualTo("some.package");
+        assertThat(resName.type).isEqualTo("string");
+        assertThat(resName.name).isEqualTo("some/name");
+        assertThat(resName).isEqualTo(new ResName("some.package", "string", "some/name"));
+        assertThat(new ResName(":id/name").namespace).isEqualTo("");
+    }
+
+    @Test
+    public void shouldRejectNamesThatAreNotFullyQualified() throws Exception {
+        for (String fqn : new String[] {"string/name", "package:name", "package:/name", "package:string/"}) {
+            try {
+                new ResName(fqn);
+                throw new AssertionError("expected " + fqn + " to be rejected");
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage()).isEqualTo("\"" + fqn + "\" is not fully qualified");
+            }
+        }
+    }
+
+    @Test
+    public void shouldInternEqualNamesToOneInstance() throws Exception {
+        ResName resName = new ResName("some.package", "string", "name").intern();
+        assertThat(new ResName("some.package:string/name").intern()).isSameAs(resName);
+        assertThat(new ResName("some.package:string/other").intern()).isNotSameAs(resName);
+    }
+}
@@ -47,6 +47,16 @@ public class ResourceExtractorTest {
         assertThat(resourceIndex.getResName(R.id.burritos).getFullyQualifiedName()).isEqualTo("org.robolectric:id/burritos");
     }
 
+    @Test
+    public void shouldMakeUpIdsForMissingAndroidResources() throws Exception {
+        ResName missing = new ResName("android", "string", "no_such_string");
+        Integer id = resourceIndex.getResourceId(missing);
+        assertThat(id).isNotNull();
+        assertThat(resourceIndex.getResourceId(missing)).isEqualTo(id);
+        assertThat(resourceIndex.getResName(id)).isEqualTo(missing);
+        assertThat(resourceIndex.getResourceId(new ResName("org.robolectric", "string", "no_such_string"))).isNull();
+    }
+
     @Test
     public void shouldResolveEquivalentResNames() throws Exception {
         OverlayResourceIndex overlayResourceIndex = new OverlayResourceIndex(
@@ -106,6 +106,21 @@ public class ResourceLoaderTest {
         assertThat(resourceLoader.getStringArrayValue(resourceLoader.getResourceIndex().getResName(R.array.greetings), "")).containsExactly("hola", "Hello");
     }
 
+    @Test
+    public void shouldResolveReferencesTheSameWayEachTime() throws Exception {
+        ResourceLoader resourceLoader = new PackageResourceLoader(resourcePath);
+        ResName greeting = new ResName(R.class.getPackage().getName(), "string", "greeting");
+        assertEquals("Howdy", resourceLoader.getStringValue(greeting, ""));
+        assertEquals("Howdy", resourceLoader.getStringValue(greeting, ""));
+        assertEquals("Howdy", resourceLoader.getStringValue(greeting, "fr"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldDetectCircularReferences() throws Exception {
+        ResourceLoader resourceLoader = new PackageResourceLoader(new ResourcePath(R.class, resourceFile("circular", "res"), null));
+        resourceLoader.getStringValue(new ResName(R.class.getPackage().getName(), "string", "circular_a"), "");
+    }
+
     @Test
     public void shouldAddAndroidToSystemStringArrayName() throws Exception {
         ResourceLoader resourceLoader = Robolectric.getShadowApplication().getResourceLoader();
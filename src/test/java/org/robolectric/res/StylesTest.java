@@ -0,0 +1,86 @@
+package org.robolectric.res;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.R;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class StylesTest {
+    private ResourceLoader resourceLoader;
+    private Styles styles;
+
+    @Before
+    public void setUp() throws Exception {
+        resourceLoader = new PackageResourceLoader(testResources());
+        styles = Styles.forResourceLoader(resourceLoader);
+    }
+
+    @Test
+    public void shouldLoadStylesWithTheirParents() throws Exception {
+        StyleData styleData = resourceLoader.getStyle(new ResName(TEST_PACKAGE, "style", "FancyStyle_Big"), "");
+        assertThat(styleData.getParent()).isEqualTo(new ResName(TEST_PACKAGE, "style", "FancyStyle"));
+        assertThat(styleData.getItems()).hasSize(1);
+
+        styleData = resourceLoader.getStyle(new ResName(TEST_PACKAGE, "style", "Theme_Robolectric"), "");
+        assertThat(styleData.getParent()).isEqualTo(new ResName("android", "style", "Theme"));
+    }
+
+    @Test
+    public void shouldFoldInInheritedItems() throws Exception {
+        Style style = styles.getStyle(new ResName(TEST_PACKAGE, "style", "FancyStyle_Big"), "");
+        assertThat(style.getAttribute(new ResName("android:attr/textSize")).value).isEqualTo("24sp");
+        assertThat(style.getAttribute(new ResName("android:attr/textColor")).value).isEqualTo("#ff0000");
+        assertThat(styles.getStyle(new ResName(TEST_PACKAGE, "style", "FancyStyle_Big"), "")).isSameAs(style);
+
+        // parents that can't be found are skipped
+        assertThat(styles.getStyle(new ResName(TEST_PACKAGE, "style", "Theme_Robolectric"), "").size()).isEqualTo(3);
+        assertThat(styles.getStyle(new ResName(TEST_PACKAGE, "style", "NoSuchStyle"), "")).isNull();
+    }
+
+    @Test
+    public void shouldResolveAttrsFromDefaultStyleThenTheme() throws Exception {
+        Style theme = styles.getTheme(Arrays.asList(new ResName(TEST_PACKAGE, "style", "Theme_Robolectric")), Arrays.asList(true), "");
+        Style defStyle = styles.getStyle(new ResName(TEST_PACKAGE, "style", "FancyStyle"), "");
+        int[] attrs = {R.attr.isSugary, R.attr.aspectRatio, R.attr.itemType};
+
+        Attribute[] resolved = theme.resolve(attrs, defStyle, resourceLoader.getResourceIndex());
+        assertThat(resolved[0].resName).isEqualTo(new ResName(TEST_PACKAGE, "attr", "isSugary"));
+        assertThat(resolved[0].value).isEqualTo("true");
+        assertThat(resolved[1].value).isEqualTo("1.5");
+        assertThat(resolved[2]).isNull();
+        assertThat(theme.resolve(attrs, defStyle, resourceLoader.getResourceIndex())).isSameAs(resolved);
+
+        assertThat(theme.resolve(attrs, null, resourceLoader.getResourceIndex())[1].value).isEqualTo("2.0");
+    }
+
+    @Test
+    public void shouldForgetResolvedAttrsOnceTheirArrayIsGone() throws Exception {
+        Style theme = styles.getTheme(Arrays.asList(new ResName(TEST_PACKAGE, "style", "Theme_Robolectric")), Arrays.asList(true), "");
+        for (int i = 0; i < 100; i++) {
+            theme.resolve(new int[] {R.attr.isSugary, R.attr.aspectRatio}, null, resourceLoader.getResourceIndex());
+        }
+
+        for (int i = 0; i < 50 && theme.resolvedAttrsSize() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(theme.resolvedAttrsSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldOnlyOverrideThemeAttributesWhenForced() throws Exception {
+        ResName fancyStyle = new ResName(TEST_PACKAGE, "style", "FancyStyle");
+        ResName theme = new ResName(TEST_PACKAGE, "style", "Theme_Robolectric");
+        ResName aspectRatio = new ResName(TEST_PACKAGE, "attr", "aspectRatio");
+
+        assertThat(styles.getTheme(Arrays.asList(theme, fancyStyle), Arrays.asList(true, false), "").getAttribute(aspectRatio).value).isEqualTo("2.0");
+        assertThat(styles.getTheme(Arrays.asList(theme, fancyStyle), Arrays.asList(true, true), "").getAttribute(aspectRatio).value).isEqualTo("1.5");
+        assertThat(styles.getTheme(Collections.<ResName>emptyList(), Collections.<Boolean>emptyList(), "").size()).isEqualTo(0);
+    }
+}
@@ -378,6 +378,54 @@ public class ViewLoaderTest {
         assertThat(innerCustomView.childCountAfterInflate).isEqualTo(3);
     }
 
+    @Test
+    public void shouldInvokeOnFinishInflateAfterIncludedChildrenAreAdded() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            CustomView2 outerCustomView = (CustomView2) inflate("custom_layout5");
+            CustomView2 includedCustomView = (CustomView2) outerCustomView.getChildAt(0);
+            CustomView2 innerCustomView = (CustomView2) includedCustomView.getChildAt(0);
+            assertThat(outerCustomView.childCountAfterInflate).isEqualTo(2);
+            assertInstanceOf(TextView.class, outerCustomView.getChildAt(1));
+            assertThat(includedCustomView.childCountAfterInflate).isEqualTo(1);
+            assertThat(innerCustomView.childCountAfterInflate).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void shouldInflateIndependentViewTreesEachTime() throws Exception {
+        ViewGroup first = (ViewGroup) inflate("media");
+        ViewGroup second = (ViewGroup) inflate("media");
+
+        assertNotSame(first, second);
+        assertEquals(first.getChildCount(), second.getChildCount());
+        for (int i = 0; i < first.getChildCount(); i++) {
+            assertNotSame(first.getChildAt(i), second.getChildAt(i));
+            assertSame(first, first.getChildAt(i).getParent());
+            assertSame(second, second.getChildAt(i).getParent());
+            assertSame(first.getChildAt(i).getClass(), second.getChildAt(i).getClass());
+        }
+
+        first.findViewById(R.id.include_id).setVisibility(View.VISIBLE);
+        ((TextView) first.findViewById(R.id.time)).setText("changed");
+        assertThat(second.findViewById(R.id.include_id).getVisibility()).isEqualTo(View.GONE);
+        assertThat(((TextView) second.findViewById(R.id.time)).getText().toString()).isEqualTo("Media Layout");
+    }
+
+    @Test
+    public void shouldApplyIncludeAttributesEachTimeALayoutIsInflated() throws Exception {
+        ViewGroup first = (ViewGroup) inflate("override_include");
+        ViewGroup second = (ViewGroup) inflate("override_include");
+
+        assertNotSame(first.findViewById(R.id.snippet_text), second.findViewById(R.id.snippet_text));
+        assertThat(first.findViewById(R.id.snippet_text).getVisibility()).isEqualTo(View.INVISIBLE);
+        assertThat(second.findViewById(R.id.snippet_text).getVisibility()).isEqualTo(View.INVISIBLE);
+        assertNotSame(first.findViewById(R.id.inner_text), second.findViewById(R.id.inner_text));
+        assertSame(second, second.findViewById(R.id.inner_text).getParent());
+
+        // the include's target on its own is unaffected by the include's attributes
+        assertThat(inflate("snippet").getVisibility()).isEqualTo(View.GONE);
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     public static class CustomView3 extends TextView {
         public CustomView3(Context context) { super(context); }
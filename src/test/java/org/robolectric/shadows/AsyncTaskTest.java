@@ -39,6 +39,20 @@ public class AsyncTaskTest {
         transcript.assertEventsSoFar("onPostExecute c");
     }
 
+    @Test
+    public void testNormalFlowOnBackgroundThreads() throws Exception {
+        Robolectric.setBackgroundThreadCount(2);
+        AsyncTask<String, String, String> asyncTask = new MyAsyncTask();
+
+        asyncTask.execute("a", "b");
+        assertEquals("c", asyncTask.get(10, TimeUnit.SECONDS));
+        Robolectric.runBackgroundTasks();
+        transcript.assertEventsSoFar("onPreExecute", "doInBackground a, b");
+
+        Robolectric.runUiThreadTasks();
+        transcript.assertEventsSoFar("onPostExecute c");
+    }
+
     @Test
     public void testCancelBeforeBackground() throws Exception {
         AsyncTask<String, String, String> asyncTask = new MyAsyncTask();
@@ -270,6 +270,19 @@ public class HandlerTest {
         assertThat(handler.hasMessages(123)).isFalse();
     }
 
+    @Test
+    public void removeMessages_shouldTakeMessagesOffTheScheduler() throws Exception {
+        Robolectric.pauseMainLooper();
+        Handler handler = new Handler();
+        handler.sendEmptyMessageDelayed(123, 100);
+        handler.sendEmptyMessageDelayed(456, 100);
+        assertThat(Robolectric.getUiThreadScheduler().enqueuedTaskCount()).isEqualTo(2);
+
+        handler.removeMessages(123);
+        assertThat(Robolectric.getUiThreadScheduler().enqueuedTaskCount()).isEqualTo(1);
+        assertThat(handler.hasMessages(456)).isTrue();
+    }
+
     @Test
     public void testHasMessagesWithWhatAndObject() {
         Robolectric.pauseMainLooper();
@@ -160,4 +160,21 @@ public class MessageTest {
         Message.obtain(h, 123).sendToTarget();
         assertTrue(h.hasMessages(123));
     }
+
+    @Test
+    public void testRecycleShouldClearMessageAndReturnItToPool() throws Exception {
+        Message m = Message.obtain(new Handler(), 123, 1, 2, "obj");
+        m.setData(new Bundle());
+        m.recycle();
+
+        assertThat(m.what).isEqualTo(0);
+        assertThat(m.arg1).isEqualTo(0);
+        assertThat(m.arg2).isEqualTo(0);
+        assertNull(m.obj);
+        assertNull(m.peekData());
+        assertNull(m.getTarget());
+
+        assertThat(Message.obtain()).isSameAs(m);
+        assertThat(Message.obtain()).isNotSameAs(m);
+    }
 }
@@ -4,10 +4,12 @@ import android.app.Activity;
 import android.content.res.ColorStateList;
 import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.graphics.drawable.AnimationDrawable;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.LayerDrawable;
 import android.graphics.drawable.NinePatchDrawable;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -91,6 +93,32 @@ public class ResourcesTest {
         assertThat(resources.getDrawable(R.anim.test_anim_1)).isInstanceOf(AnimationDrawable.class);
     }
 
+    @Test
+    public void obtainStyledAttributesShouldUseAppliedStylesAndDefaultStyle() {
+        Resources.Theme theme = resources.newTheme();
+        theme.applyStyle(R.style.Theme_Robolectric, true);
+
+        TypedArray typedArray = theme.obtainStyledAttributes(null, new int[] {R.attr.isSugary, R.attr.aspectRatio}, 0, R.style.FancyStyle);
+        assertThat(typedArray.getBoolean(0, false)).isTrue();
+        assertThat(typedArray.getFloat(1, 0f)).isEqualTo(1.5f);
+    }
+
+    @Test
+    public void testGetDimension() {
+        assertThat(resources.getDimension(R.dimen.test_dp_dimen)).isEqualTo(8f);
+        assertThat(resources.getDimension(R.dimen.test_dp_dimen)).isEqualTo(8f);
+        assertThat(resources.getDimensionPixelSize(R.dimen.test_px_dimen)).isEqualTo(15);
+    }
+
+    @Test
+    public void shouldReturnANewLayerDrawableEachTime() {
+        LayerDrawable first = (LayerDrawable) resources.getDrawable(R.drawable.rainbow);
+        LayerDrawable second = (LayerDrawable) resources.getDrawable(R.drawable.rainbow);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getNumberOfLayers()).isEqualTo(8);
+        assertThat(shadowOf(second).getLoadedFromResourceId()).isEqualTo(R.drawable.rainbow);
+    }
+
     @Test
     @Config(qualifiers = "fr")
     public void testGetValuesResFromSpecifiecQualifiers() {
@@ -83,6 +83,23 @@ public class TypedArrayTest {
         assertThat(typedArray.getTextArray(0)).containsExactly("hola", "Hello");
     }
 
+    @Test
+    public void shouldConvertValuesByType() throws Exception {
+        Resources resources = Robolectric.application.getResources();
+        RoboAttributeSet attributeSet = new RoboAttributeSet(
+                asList(new Attribute(TestUtil.TEST_PACKAGE + ":attr/isSugary", "true", TestUtil.TEST_PACKAGE),
+                        new Attribute(TestUtil.TEST_PACKAGE + ":attr/aspectRatio", "1.5", TestUtil.TEST_PACKAGE),
+                        new Attribute(TestUtil.TEST_PACKAGE + ":attr/items", "#ff0000", TestUtil.TEST_PACKAGE)
+                ), shadowOf(resources).getResourceLoader(), null);
+        TypedArray typedArray = ShadowTypedArray.create(resources, attributeSet,
+                new int[]{R.attr.isSugary, R.attr.aspectRatio, R.attr.aspectRatioEnabled, R.attr.items});
+        assertThat(typedArray.getBoolean(0, false)).isTrue();
+        assertThat(typedArray.getFloat(1, 0f)).isEqualTo(1.5f);
+        assertThat(typedArray.getBoolean(2, true)).isTrue();
+        assertThat(typedArray.getColor(3, 0)).isEqualTo(0xffff0000);
+        assertThat(typedArray.getIndexCount()).isEqualTo(3);
+    }
+
     @Test public void shouldEnumeratePresentValues() throws Exception {
         Resources resources = Robolectric.application.getResources();
         RoboAttributeSet attributeSet = new RoboAttributeSet(
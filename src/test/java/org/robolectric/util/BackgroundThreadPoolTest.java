@@ -0,0 +1,94 @@
+package org.robolectric.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class BackgroundThreadPoolTest {
+    private BackgroundThreadPool backgroundThreadPool;
+
+    @Before
+    public void setUp() throws Exception {
+        backgroundThreadPool = new BackgroundThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        backgroundThreadPool.shutdownNow();
+    }
+
+    @Test
+    public void shouldRunTasksConcurrently() throws Exception {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final AtomicInteger finished = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            backgroundThreadPool.execute(new Runnable() {
+                @Override public void run() {
+                    bothStarted.countDown();
+                    try {
+                        if (bothStarted.await(10, TimeUnit.SECONDS)) finished.incrementAndGet();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+        }
+
+        assertThat(backgroundThreadPool.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(finished.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void awaitIdleShouldWaitForTasksPostedByOtherTasks() throws Exception {
+        final AtomicInteger finished = new AtomicInteger();
+        backgroundThreadPool.execute(new Runnable() {
+            @Override public void run() {
+                backgroundThreadPool.execute(new Runnable() {
+                    @Override public void run() {
+                        finished.incrementAndGet();
+                    }
+                });
+            }
+        });
+
+        backgroundThreadPool.awaitIdle();
+        assertThat(finished.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void awaitIdleShouldGiveUpAfterTimeout() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        backgroundThreadPool.execute(new Runnable() {
+            @Override public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+
+        assertThat(backgroundThreadPool.awaitIdle(10, TimeUnit.MILLISECONDS)).isFalse();
+        release.countDown();
+        assertThat(backgroundThreadPool.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldRunTasksOnDaemonThreadsWithThePoolsClassLoader() throws Exception {
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        backgroundThreadPool.execute(new Runnable() {
+            @Override public void run() {
+                thread.set(Thread.currentThread());
+            }
+        });
+
+        backgroundThreadPool.awaitIdle();
+        assertThat(thread.get().isDaemon()).isTrue();
+        assertThat(thread.get().getContextClassLoader()).isSameAs(BackgroundThreadPool.class.getClassLoader());
+    }
+}
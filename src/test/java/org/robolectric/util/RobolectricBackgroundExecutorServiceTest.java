@@ -6,8 +6,12 @@ import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.TestRunners;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -72,4 +76,63 @@ public class RobolectricBackgroundExecutorServiceTest {
 
         assertEquals("foo", future.get());
     }
+
+    @Test
+    public void invokeAll_shouldRunTasksOnBackgroundScheduler() throws Exception {
+        List<Future<String>> futures = executorService.invokeAll(Arrays.asList(new Callable<String>() {
+            @Override public String call() throws Exception {
+                return "foo";
+            }
+        }, new Callable<String>() {
+            @Override public String call() throws Exception {
+                return "bar";
+            }
+        }));
+
+        assertEquals("foo", futures.get(0).get());
+        assertEquals("bar", futures.get(1).get());
+    }
+
+    @Test
+    public void shutdown_shouldRejectNewTasksAndTerminateOnceQueuedTasksHaveRun() throws Exception {
+        executorService.execute(runnable);
+        executorService.shutdown();
+        assertTrue(executorService.isShutdown());
+        assertFalse(executorService.isTerminated());
+
+        try {
+            executorService.execute(runnable);
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+
+        Robolectric.runBackgroundTasks();
+        transcript.assertEventsSoFar("background event ran");
+        assertTrue(executorService.isTerminated());
+    }
+
+    @Test
+    public void shutdownNow_shouldReturnTasksThatNeverRan() throws Exception {
+        executorService.execute(runnable);
+
+        assertEquals(Arrays.asList(runnable), executorService.shutdownNow());
+        Robolectric.runBackgroundTasks();
+        transcript.assertNoEventsSoFar();
+        assertTrue(executorService.isTerminated());
+    }
+
+    @Test
+    public void withBackgroundThreads_shouldRunTasksOnRealThreads() throws Exception {
+        Robolectric.setBackgroundThreadCount(2);
+
+        Future<Thread> future = executorService.submit(new Callable<Thread>() {
+            @Override public Thread call() throws Exception {
+                return Thread.currentThread();
+            }
+        });
+
+        assertNotSame(Thread.currentThread(), future.get());
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+    }
 }
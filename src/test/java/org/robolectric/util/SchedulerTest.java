@@ -148,6 +148,67 @@ public class SchedulerTest {
         assertThat(runnable2.wasRun).isTrue();
     }
 
+    @Test
+    public void shouldRunRunnablesPostedForTheSameTimeInOrder() throws Exception {
+        scheduler.postDelayed(new AddToTranscript("later"), 10);
+        scheduler.post(new AddToTranscript("one"));
+        scheduler.postDelayed(new AddToTranscript("also later"), 10);
+        scheduler.post(new AddToTranscript("two"));
+        scheduler.postAtFrontOfQueue(new AddToTranscript("front"));
+        scheduler.postAtFrontOfQueue(new AddToTranscript("very front"));
+
+        scheduler.advanceBy(10);
+        transcript.assertEventsSoFar("very front", "front", "one", "two", "later", "also later");
+    }
+
+    @Test
+    public void shouldOrderFarFutureRunnablesWithoutOverflowing() throws Exception {
+        scheduler.postDelayed(new AddToTranscript("far"), Long.MAX_VALUE / 2);
+        scheduler.postDelayed(new AddToTranscript("near"), 1);
+
+        scheduler.runOneTask();
+        transcript.assertEventsSoFar("near");
+    }
+
+    @Test
+    public void removeShouldNotCountRemovedRunnables() throws Exception {
+        TestRunnable removed = new TestRunnable();
+        for (int i = 0; i < 200; i++) {
+            scheduler.postDelayed(removed, i);
+        }
+        scheduler.post(new AddToTranscript("kept"));
+        scheduler.remove(removed);
+        scheduler.postDelayed(removed, 5);
+
+        assertThat(scheduler.size()).isEqualTo(2);
+        scheduler.advanceToLastPostedRunnable();
+        transcript.assertEventsSoFar("kept");
+        assertThat(removed.wasRun).isTrue();
+        assertThat(scheduler.getCurrentTime()).isEqualTo(5);
+        assertThat(scheduler.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void drainToShouldRunTasksPostedWhileDrainingThatAreAlsoDue() throws Exception {
+        scheduler.postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("frame 1");
+                scheduler.postDelayed(new AddToTranscript("frame 2"), 16);
+                scheduler.postDelayed(new AddToTranscript("too late"), 100);
+            }
+        }, 16);
+
+        assertThat(scheduler.drainTo(50)).isEqualTo(2);
+        transcript.assertEventsSoFar("frame 1", "frame 2");
+        assertThat(scheduler.getCurrentTime()).isEqualTo(50);
+        assertThat(scheduler.getRunTaskCount()).isEqualTo(2);
+        assertThat(scheduler.getNextScheduledTime()).isEqualTo(116);
+        assertThat(scheduler.getLastScheduledTime()).isEqualTo(116);
+
+        assertThat(scheduler.drainBy(100)).isEqualTo(1);
+        assertThat(scheduler.getNextScheduledTime()).isEqualTo(-1);
+    }
+
     private class AddToTranscript implements Runnable {
         private String event;
 
@@ -0,0 +1,87 @@
+package org.robolectric.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class VirtualClockTest {
+    private Transcript transcript;
+    private VirtualClock clock;
+    private Scheduler main;
+    private Scheduler background;
+
+    @Before
+    public void setUp() throws Exception {
+        transcript = new Transcript();
+        clock = new VirtualClock();
+        main = new Scheduler(clock);
+        main.pause();
+        background = new Scheduler(clock);
+        background.pause();
+    }
+
+    @Test
+    public void shouldRunTasksOnAllSchedulersInTheOrderTheyAreDue() throws Exception {
+        main.postDelayed(new AddToTranscript("main 20"), 20);
+        background.postDelayed(new AddToTranscript("background 10"), 10);
+        background.postDelayed(new AddToTranscript("background 20"), 20);
+        main.postDelayed(new AddToTranscript("main 10"), 10);
+        main.postDelayed(new AddToTranscript("main 100"), 100);
+
+        assertThat(clock.advanceBy(50)).isEqualTo(4);
+        transcript.assertEventsSoFar("background 10", "main 10", "main 20", "background 20");
+        assertThat(clock.getCurrentTime()).isEqualTo(50);
+        assertThat(main.getCurrentTime()).isEqualTo(50);
+        assertThat(background.getCurrentTime()).isEqualTo(50);
+        assertThat(clock.enqueuedTaskCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldScheduleTasksPostedFromAnotherSchedulerRelativeToTheTaskThatPostedThem() throws Exception {
+        background.postDelayed(new Runnable() {
+            @Override public void run() {
+                transcript.add("background");
+                main.postDelayed(new AddToTranscript("main"), 5);
+            }
+        }, 10);
+
+        clock.advanceBy(14);
+        transcript.assertEventsSoFar("background");
+
+        clock.advanceBy(1);
+        transcript.assertEventsSoFar("main");
+    }
+
+    @Test
+    public void shouldStartNewSchedulersAtTheClocksTime() throws Exception {
+        clock.advanceBy(100);
+
+        Scheduler handlerThread = new Scheduler(clock);
+        handlerThread.pause();
+        handlerThread.postDelayed(new AddToTranscript("handler thread"), 10);
+        assertThat(handlerThread.getCurrentTime()).isEqualTo(100);
+
+        assertThat(clock.advanceToLastPostedRunnable()).isEqualTo(1);
+        transcript.assertEventsSoFar("handler thread");
+        assertThat(clock.getCurrentTime()).isEqualTo(110);
+
+        clock.unregister(handlerThread);
+        handlerThread.postDelayed(new AddToTranscript("ignored"), 10);
+        clock.advanceBy(100);
+        transcript.assertNoEventsSoFar();
+    }
+
+    private class AddToTranscript implements Runnable {
+        private String event;
+
+        public AddToTranscript(String event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            transcript.add(event);
+        }
+    }
+}